@@ -58,6 +58,7 @@ type InstallResult = {
 const betterStageNames: Map<Stage, string> = new Map([
   ['NOT_STARTED', 'Not started'],
   ['PREPARE', 'Preparing'],
+  ['VALIDATE', 'Validating'],
   ['MOD_LOADER', 'Mod loader'],
   ['FILES', 'Downloading'],
   ['FINISHED', 'Finishing'],
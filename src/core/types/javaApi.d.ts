@@ -152,6 +152,43 @@ export interface InstanceVersionInfoDataReply extends BaseData {
     versionManifest: ModpackVersionManifest;
 }
 
+export interface InstanceLogsHandlerRequest extends BaseData {
+    uuid: string;
+    start: number;
+    count: number;
+}
+
+export interface InstanceLogsHandlerReply extends InstanceLogsHandlerRequest {
+    success: boolean;
+    total: number;
+    lines: string[];
+}
+
+export interface InstanceSearchLogsHandlerRequest extends BaseData {
+    uuid: string;
+    file?: LogFile;
+    query?: string;
+    regex: boolean;
+    caseSensitive: boolean;
+    levels?: LogLevel[];
+    startLine: number;
+    limit: number;
+}
+
+export interface InstanceSearchLogsHandlerReply extends BaseData {
+    status: string;
+    message: string;
+    matches: Match[];
+    nextLine: number;
+    totalLines: number;
+}
+
+export interface Match {
+    line: number;
+    level: LogLevel;
+    text: string;
+}
+
 export interface KillInstanceData extends BaseData {
     uuid: string;
 }
@@ -171,6 +208,7 @@ export interface LaunchInstanceData extends BaseData {
 
 export interface Logs extends BaseData {
     uuid: string;
+    start: number;
     messages: string[];
 }
 
@@ -763,4 +801,8 @@ export type ValidCheckResult = "VALID" | "EXPIRED" | "NOT_LOGGED_IN" | "TOTAL_FA
 
 export type PurgeTarget = "ALL" | "INSTANCE_CACHE" | "RUNTIMES" | "MINECRAFT";
 
+export type LogFile = "CONSOLE" | "LATEST";
+
+export type LogLevel = "TRACE" | "DEBUG" | "INFO" | "WARN" | "ERROR" | "FATAL";
+
 export type Type = "BASIC" | "FULL";
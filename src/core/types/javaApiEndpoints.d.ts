@@ -36,6 +36,8 @@ export type ApiEndpoints = 	"installedInstances" |
 	"openDebugTools" |
 	"getInstanceFolders" |
 	"instanceVersionInfo" |
+	"instanceLogs" |
+	"instanceSearchLogs" |
 	"instanceCategories" |
 	"instance.kill" |
 	"launchInstance" |
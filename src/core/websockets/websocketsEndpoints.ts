@@ -39,6 +39,10 @@ import {
   InstanceRestoreBackupHandlerRequest,
   InstanceVersionInfoData,
   InstanceVersionInfoDataReply,
+  InstanceLogsHandlerReply,
+  InstanceLogsHandlerRequest,
+  InstanceSearchLogsHandlerReply,
+  InstanceSearchLogsHandlerRequest,
   KillInstanceData,
   KillInstanceDataReply,
   LaunchInstanceData,
@@ -123,6 +127,8 @@ const endpoints = {
   instanceInstallMod:             io<InstanceInstallModData, InstanceInstallModDataReply>(),
   setInstanceArt:                 io<SetInstanceArtData, SetInstanceArtDataReply>(),
   instanceVersionInfo:            io<InstanceVersionInfoData, InstanceVersionInfoDataReply>(),
+  instanceLogs:                   io<InstanceLogsHandlerRequest, InstanceLogsHandlerReply>(),
+  instanceSearchLogs:             io<InstanceSearchLogsHandlerRequest, InstanceSearchLogsHandlerReply>(),
   instanceGetBackups:             io<InstanceGetBackupsHandlerRequest, InstanceGetBackupsHandlerReply>(),
   instanceRestoreBackup:          io<InstanceRestoreBackupHandlerRequest, InstanceRestoreBackupHandlerReply>(),
   instanceDeleteBackup:           io<InstanceDeleteBackupHandlerRequest, InstanceDeleteBackupHandlerReply>(),
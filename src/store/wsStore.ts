@@ -67,6 +67,8 @@ class WebSocketController {
   
   private connectingLock = false;
   private port: number = 13377;
+  // Binary frames may need async decompression, chain message handling so ordering is kept.
+  private receiveChain: Promise<void> = Promise.resolve();
   
   /**
    * Custom hooks to pass back to the main store to avoid non-reactive
@@ -95,7 +97,9 @@ class WebSocketController {
     
     this.connectingLock = true;
     try {
-      this.ws = new WebSocket(`ws://localhost:${this.port}`);
+      // Opt in to binary frames, see NanoHttpdWebsocketServer.OutgoingMessage
+      this.ws = new WebSocket(`ws://localhost:${this.port}/?binary=1`);
+      this.ws.binaryType = "arraybuffer";
       this.attachEvents(this.ws);
     } catch (e) {
       logger.error(e);
@@ -130,7 +134,9 @@ class WebSocketController {
     }
     
     ws.onmessage = (message) => {
-      this.onMessage(message)
+      this.receiveChain = this.receiveChain
+        .then(() => this.onMessage(message))
+        .catch((e) => logger.error("Failed to handle websocket message", e));
     }
     
     ws.onopen = async () => {
@@ -140,16 +146,21 @@ class WebSocketController {
     }
   }
   
-  private onMessage(message: MessageEvent) {
+  private async onMessage(message: MessageEvent) {
     const appStore = useAppStore();
     
-    const rawMessage = message.data;
-    if (!rawMessage.startsWith("{")) {
-      logger.warn("Received invalid message", rawMessage);
-      return;
-    }
+    let messageData: any;
+    if (message.data instanceof ArrayBuffer) {
+      messageData = await decodeBinaryMessage(message.data);
+    } else {
+      const rawMessage = message.data;
+      if (!rawMessage.startsWith("{")) {
+        logger.warn("Received invalid message", rawMessage);
+        return;
+      }
 
-    const messageData = JSON.parse(rawMessage);
+      messageData = JSON.parse(rawMessage);
+    }
     const handled = this.handleSpecialMessages(messageData);
     if (handled) {
       return;
@@ -239,4 +250,34 @@ class WebSocketController {
     
     return false;
   }
-}
\ No newline at end of file
+}
+
+/**
+ * Decode a binary frame, the layout is:
+ * u8 flags (bit 0, json is gzipped), u32 json length, json, then the remaining bytes as the attachment.
+ * The attachment is put back into the json at the path named by `_attachment`.
+ */
+async function decodeBinaryMessage(buffer: ArrayBuffer) {
+  const view = new DataView(buffer);
+  const flags = view.getUint8(0);
+  const jsonLength = view.getUint32(1);
+  let jsonBytes = new Uint8Array(buffer, 5, jsonLength);
+  if (flags & 1) {
+    const stream = new Blob([jsonBytes]).stream().pipeThrough(new DecompressionStream("gzip"));
+    jsonBytes = new Uint8Array(await new Response(stream).arrayBuffer());
+  }
+
+  const messageData = JSON.parse(new TextDecoder().decode(jsonBytes));
+  const path: string | undefined = messageData._attachment;
+  if (path) {
+    delete messageData._attachment;
+    const parts = path.split(".");
+    let target = messageData;
+    for (const part of parts.slice(0, -1)) {
+      target = target[part] ??= {};
+    }
+    target[parts[parts.length - 1]] = new Uint8Array(buffer, 5 + jsonLength);
+  }
+
+  return messageData;
+}
@@ -10,9 +10,11 @@ import dev.ftb.app.api.data.other.ClientLaunchData;
 import dev.ftb.app.api.data.other.CloseModalData;
 import dev.ftb.app.api.data.other.OpenModalData;
 import dev.ftb.app.api.data.other.PingLauncherData;
+import dev.ftb.app.install.FileHashCache;
 import dev.ftb.app.install.tasks.LocalCache;
 import dev.ftb.app.migration.MigrationsManager;
 import dev.ftb.app.os.OS;
+import dev.ftb.app.pack.SessionLog;
 import dev.ftb.app.storage.settings.Settings;
 import dev.ftb.app.task.LongRunningTaskManager;
 import dev.ftb.app.util.*;
@@ -403,6 +405,10 @@ public class AppMain {
         closeSockets();
 
         Settings.saveSettings();
+        FileHashCache.saveIfLoaded();
+        CurseMetadataCache.flushIfLoaded();
+        ModVersionCache.logStatsIfLoaded();
+        SessionLog.flushAll();
     }
 
     public static void exit() {
@@ -1,31 +1,42 @@
 package dev.ftb.app.api;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
 import dev.ftb.app.AppMain;
 import dev.ftb.app.api.data.BaseData;
+import dev.ftb.app.util.ExecutorUtils;
 import fi.iki.elonen.NanoWSD;
 import net.covers1624.quack.reflect.PrivateLookups;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.jspecify.annotations.Nullable;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.VarHandle;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.GZIPOutputStream;
 
 public class NanoHttpdWebsocketServer extends NanoWSD implements WebsocketServer {
 
     private static final Logger LOGGER = LogManager.getLogger();
     private static final boolean DEBUG = Boolean.getBoolean("WebSocket.debug");
     private static final Gson GSON = new Gson();
+    private static final ExecutorService WRITER = ExecutorUtils.newIoExecutor("WebSocket Writer");
 
     private final int port;
     private final PortMode portMode;
     private final List<Connection> connections = Collections.synchronizedList(new ArrayList<>());
-    private final List<String> buffer = Collections.synchronizedList(new ArrayList<>());
+    private final List<OutgoingMessage> buffer = Collections.synchronizedList(new ArrayList<>());
 
     public NanoHttpdWebsocketServer(int port, PortMode portMode) {
         super("127.0.0.1", port);
@@ -63,7 +74,7 @@ public class NanoHttpdWebsocketServer extends NanoWSD implements WebsocketServer
 
     @Override
     public void sendMessage(BaseData data) {
-        String msg = GSON.toJson(data);
+        OutgoingMessage msg = new OutgoingMessage(data);
         if (connections.isEmpty()) {
             synchronized (buffer) {
                 if (connections.isEmpty()) { // Double checked style, yay.
@@ -72,7 +83,11 @@ public class NanoHttpdWebsocketServer extends NanoWSD implements WebsocketServer
                 }
             }
         }
-        connections.forEach(conn -> conn.send(msg));
+        String key = data.coalesceKey();
+        // Snapshot, enqueue may block on a full queue and must not hold the list's lock whilst it does.
+        for (Connection conn : List.copyOf(connections)) {
+            conn.outbound.enqueue(conn.encode(msg), key);
+        }
     }
 
     @Override
@@ -82,7 +97,7 @@ public class NanoHttpdWebsocketServer extends NanoWSD implements WebsocketServer
 
     private void addConnection(Connection conn) {
         synchronized (buffer) {
-            buffer.forEach(conn::send);
+            buffer.forEach(msg -> conn.outbound.enqueue(conn.encode(msg), null));
             buffer.clear();
             connections.add(conn);
         }
@@ -104,8 +119,25 @@ public class NanoHttpdWebsocketServer extends NanoWSD implements WebsocketServer
             }
         }
 
+        private final Outbound outbound = new Outbound(this::sendEncoded, WRITER);
+        // If the client understands binary frames, see OutgoingMessage.
+        private final boolean binary;
+
         public Connection(IHTTPSession handshakeRequest) {
             super(handshakeRequest);
+            binary = handshakeRequest.getParameters().getOrDefault("binary", List.of()).contains("1");
+        }
+
+        private Object encode(OutgoingMessage msg) {
+            return binary ? msg.binary() : msg.text();
+        }
+
+        private void sendEncoded(Object msg) {
+            if (msg instanceof byte[] bytes) {
+                send(bytes);
+            } else {
+                send((String) msg);
+            }
         }
 
         @Override
@@ -140,6 +172,18 @@ public class NanoHttpdWebsocketServer extends NanoWSD implements WebsocketServer
             }
         }
 
+        @Override
+        public void send(byte[] payload) {
+            if (DEBUG) {
+                LOGGER.info("WS :> <binary {} bytes>", payload.length);
+            }
+            try {
+                super.send(payload);
+            } catch (IOException ex) {
+                throw new RuntimeException("Failed to send message.", ex);
+            }
+        }
+
         @Override
         public void close(WebSocketFrame.CloseCode code, String reason, boolean initiatedByRemote) throws IOException {
             // TODO fixes bug in parent impl..
@@ -160,6 +204,7 @@ public class NanoHttpdWebsocketServer extends NanoWSD implements WebsocketServer
         protected void onClose(WebSocketFrame.CloseCode code, String reason, boolean initiatedByRemote) {
             LOGGER.info("Connection to {} closed {}({}).", getHandshakeRequest().getRemoteIpAddress(), reason, code);
             connections.remove(this);
+            outbound.close();
             AppMain.websocketDisconnect = connections.isEmpty();
         }
 
@@ -182,4 +227,255 @@ public class NanoHttpdWebsocketServer extends NanoWSD implements WebsocketServer
             LOGGER.warn("Error on websocket.", exception);
         }
     }
+
+    /**
+     * A bounded queue of messages waiting to be written to a connection.
+     * <p>
+     * Producers only ever enqueue, a writer task drains the queue onto the socket. This way a slow
+     * UI can never stall whichever thread produced the message (installs, log threads, etc.).
+     * <p>
+     * Messages with a {@link BaseData#coalesceKey()} replace any queued message with the same key.
+     * The replacement is queued at the back, so message order is unchanged from the producer's view.
+     * If the queue fills up regardless, producers wait up to {@link #FULL_TIMEOUT_MS} for room before
+     * the message is dropped. Superseded copies are purged from the queue once there are more than
+     * {@link #MAX_TOMBSTONES}, so the queue itself is bounded too.
+     */
+    static class Outbound {
+
+        private static final int MAX_QUEUED = 10000;
+        private static final int MAX_TOMBSTONES = 10000;
+        private static final long FULL_TIMEOUT_MS = TimeUnit.SECONDS.toMillis(30);
+
+        private final Consumer<Object> sink;
+        private final Executor writer;
+        private final int maxQueued;
+        private final int maxTombstones;
+        private final long fullTimeoutMs;
+        private final ArrayDeque<Slot> queue = new ArrayDeque<>();
+        private final Map<String, Slot> pendingByKey = new HashMap<>();
+        private int live;
+        private boolean draining;
+        private boolean closed;
+
+        // Metrics, guarded by this.
+        private long sent;
+        private long coalesced;
+        private long dropped;
+        private int peakDepth;
+        private long blockedNanos;
+
+        /**
+         * @param sink   Writes a message to the socket, either a String for a text frame or byte[] for a binary frame.
+         * @param writer Runs the task draining the queue into the sink.
+         */
+        Outbound(Consumer<Object> sink, Executor writer) {
+            this(sink, writer, MAX_QUEUED, MAX_TOMBSTONES, FULL_TIMEOUT_MS);
+        }
+
+        Outbound(Consumer<Object> sink, Executor writer, int maxQueued, int maxTombstones, long fullTimeoutMs) {
+            this.sink = sink;
+            this.writer = writer;
+            this.maxQueued = maxQueued;
+            this.maxTombstones = maxTombstones;
+            this.fullTimeoutMs = fullTimeoutMs;
+        }
+
+        synchronized void enqueue(Object msg, @Nullable String key) {
+            if (closed) return;
+
+            Slot prev = key != null ? pendingByKey.get(key) : null;
+            if (prev != null) {
+                // Superseded, the queued copy becomes a tombstone.
+                prev.msg = null;
+                live--;
+                coalesced++;
+            } else if (live >= maxQueued && !awaitSpace()) {
+                dropped++;
+                LOGGER.warn("Websocket outbound queue full, dropping message.");
+                return;
+            }
+
+            Slot slot = new Slot(msg, key);
+            queue.add(slot);
+            if (key != null) {
+                pendingByKey.put(key, slot);
+            }
+            live++;
+            peakDepth = Math.max(peakDepth, live);
+            if (queue.size() - live > maxTombstones) {
+                // Only superseded slots have no message, none of them are referenced by pendingByKey.
+                queue.removeIf(e -> e.msg == null);
+            }
+            if (!draining) {
+                draining = true;
+                writer.execute(this::drain);
+            }
+        }
+
+        // Must hold this.
+        private boolean awaitSpace() {
+            long start = System.nanoTime();
+            long deadline = start + TimeUnit.MILLISECONDS.toNanos(fullTimeoutMs);
+            try {
+                while (live >= maxQueued && !closed) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) return false;
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return false;
+            } finally {
+                blockedNanos += System.nanoTime() - start;
+            }
+            return !closed;
+        }
+
+        private void drain() {
+            while (true) {
+                Object msg;
+                synchronized (this) {
+                    Slot slot = queue.poll();
+                    if (slot == null || closed) {
+                        draining = false;
+                        return;
+                    }
+                    if (slot.key != null) {
+                        pendingByKey.remove(slot.key, slot);
+                    }
+                    msg = slot.msg;
+                    if (msg == null) continue;
+
+                    live--;
+                    sent++;
+                    notifyAll();
+                }
+                try {
+                    sink.accept(msg);
+                } catch (Throwable ex) {
+                    LOGGER.warn("Failed to send websocket message.", ex);
+                }
+            }
+        }
+
+        /**
+         * @return The number of slots in the queue, live messages and tombstones.
+         */
+        synchronized int queuedSlots() {
+            return queue.size();
+        }
+
+        synchronized void close() {
+            closed = true;
+            queue.clear();
+            pendingByKey.clear();
+            live = 0;
+            notifyAll();
+            LOGGER.info("Websocket outbound stats: {} sent, {} coalesced, {} dropped, peak queue depth {}, producers blocked for {}ms.",
+                    sent, coalesced, dropped, peakDepth, TimeUnit.NANOSECONDS.toMillis(blockedNanos));
+        }
+
+        private static class Slot {
+
+            // Either a String for a text frame, or byte[] for a binary frame. Null once superseded.
+            private @Nullable Object msg;
+            private final @Nullable String key;
+
+            Slot(Object msg, @Nullable String key) {
+                this.msg = msg;
+                this.key = key;
+            }
+        }
+    }
+
+    /**
+     * A message ready to send, encoded lazily to the plain json text form and/or the binary form,
+     * so each form is only produced if some connection needs it.
+     * <p>
+     * Clients opt in to binary frames by connecting with {@code ?binary=1}. Such clients may receive,
+     * in addition to regular text frames, binary frames laid out as:
+     * <pre>
+     * u8    flags, bit 0 set if the json is gzipped.
+     * u32   json length.
+     * byte[json length] json.
+     * byte[] remaining bytes, the attachment, if any.
+     * </pre>
+     * If the message has a {@link BaseData.BinaryAttachment}, it is removed from the json and sent raw
+     * after it, with the json property {@code _attachment} naming where the client should put it back.
+     * Json over {@link #COMPRESS_THRESHOLD} is gzipped. Anything else is sent as a text frame, as usual.
+     */
+    static final class OutgoingMessage {
+
+        static final int COMPRESS_THRESHOLD = 16 * 1024;
+        static final int FLAG_GZIP = 1;
+
+        private final BaseData data;
+        private @Nullable String text;
+        private @Nullable Object binary;
+
+        OutgoingMessage(BaseData data) {
+            this.data = data;
+        }
+
+        synchronized String text() {
+            if (text == null) {
+                text = GSON.toJson(data);
+            }
+            return text;
+        }
+
+        synchronized Object binary() {
+            if (binary == null) {
+                binary = encodeBinary();
+            }
+            return binary;
+        }
+
+        private Object encodeBinary() {
+            BaseData.BinaryAttachment attachment = data.binaryAttachment();
+            String json;
+            if (attachment != null) {
+                // Build the json without the attachment directly, the text form is never needed.
+                JsonObject tree = GSON.toJsonTree(data).getAsJsonObject();
+                removePath(tree, attachment.path());
+                tree.addProperty("_attachment", attachment.path());
+                json = GSON.toJson(tree);
+            } else {
+                json = text();
+            }
+
+            byte[] jsonBytes = json.getBytes(StandardCharsets.UTF_8);
+            boolean compress = jsonBytes.length >= COMPRESS_THRESHOLD;
+            if (attachment == null && !compress) return json;
+
+            if (compress) {
+                ByteArrayOutputStream bos = new ByteArrayOutputStream(jsonBytes.length / 4);
+                try (GZIPOutputStream os = new GZIPOutputStream(bos)) {
+                    os.write(jsonBytes);
+                } catch (IOException ex) {
+                    // Not possible, in memory.
+                    throw new RuntimeException(ex);
+                }
+                jsonBytes = bos.toByteArray();
+            }
+
+            byte[] attachmentBytes = attachment != null ? attachment.bytes() : new byte[0];
+            return ByteBuffer.allocate(1 + 4 + jsonBytes.length + attachmentBytes.length)
+                    .put((byte) (compress ? FLAG_GZIP : 0))
+                    .putInt(jsonBytes.length)
+                    .put(jsonBytes)
+                    .put(attachmentBytes)
+                    .array();
+        }
+
+        private static void removePath(JsonObject obj, String path) {
+            String[] parts = path.split("\\.");
+            for (int i = 0; i < parts.length - 1; i++) {
+                JsonElement next = obj.get(parts[i]);
+                if (next == null || !next.isJsonObject()) return;
+                obj = next.getAsJsonObject();
+            }
+            obj.remove(parts[parts.length - 1]);
+        }
+    }
 }
@@ -1,9 +1,9 @@
 package dev.ftb.app.api;
 
 import com.google.gson.Gson;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import dev.ftb.app.AppMain;
 import dev.ftb.app.Constants;
 import dev.ftb.app.api.WebsocketServer.PortMode;
@@ -21,61 +21,69 @@ import dev.ftb.app.api.handlers.purge.PurgeHandler;
 import dev.ftb.app.api.handlers.storage.StorageGetAllHandler;
 import dev.ftb.app.api.handlers.storage.StorageGetHandler;
 import dev.ftb.app.api.handlers.storage.StoragePutHandler;
+import dev.ftb.app.util.ExecutorUtils;
 import dev.ftb.app.util.MiscUtils;
-import org.apache.commons.lang3.tuple.Pair;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.jspecify.annotations.Nullable;
 
 import java.io.IOException;
+import java.io.StringReader;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
-import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 public class WebSocketHandler {
 
     private static final Logger LOGGER = LogManager.getLogger();
     private static final Gson GSON = new Gson();
 
-    private static final Map<String, Pair<Class<? extends BaseData>, IMessageHandler<? extends BaseData>>> register = new HashMap<>();
+    private static final Map<String, Registration> register = new HashMap<>();
 
     private static @Nullable WebsocketServer server;
 
     static {
         register("appInit", AppInitHandler.Data.class, new AppInitHandler());
-        register("moveInstances", MoveInstancesHandler.Data.class, new MoveInstancesHandler());
+        register("moveInstances", MoveInstancesHandler.Data.class, new MoveInstancesHandler(), Lane.BULK);
         register("installedInstances", InstalledInstancesData.class, new InstalledInstancesHandler());
         register("instanceCategories", InstanceCategoryHandler.Data.class, new InstanceCategoryHandler());
         register("pinInstance", PinInstanceHandler.Data.class, new PinInstanceHandler());
         register("launchInstance", LaunchInstanceData.class, new LaunchInstanceHandler());
         register("instance.kill", KillInstanceData.class, new KillInstanceHandler());
-        register("installInstance", InstallInstanceData.class, new InstallInstanceHandler());
+        register("installInstance", InstallInstanceData.class, new InstallInstanceHandler(), Lane.BULK);
         register("cancelInstallInstance", CancelInstallInstanceData.class, new CancelInstallInstanceHandler());
-        register("updateInstance", UpdateInstanceData.class, new UpdateInstanceHandler());
-        register("uninstallInstance", UninstallInstanceData.class, new UninstallInstanceHandler());
+        register("updateInstance", UpdateInstanceData.class, new UpdateInstanceHandler(), Lane.BULK);
+        register("uninstallInstance", UninstallInstanceData.class, new UninstallInstanceHandler(), Lane.BULK);
         register("instanceConfigure", InstanceConfigureData.class, new InstanceConfigureHandler());
         register("instanceModToggle", InstanceModToggleData.class, new InstanceModToggleHandler());
         register("instanceOverrideModLoader", InstanceOverrideModLoaderData.class, new InstanceOverrideModLoaderHandler());
         register("getInstanceFolders", GetInstanceFoldersHandler.Request.class, new GetInstanceFoldersHandler());
-        register("duplicateInstance", DuplicateInstanceHandler.Request.class, new DuplicateInstanceHandler());
+        register("duplicateInstance", DuplicateInstanceHandler.Request.class, new DuplicateInstanceHandler(), Lane.BULK);
         register("getSettings", SettingsInfoData.class, new SettingsInfoHandler());
         register("saveSettings", SettingsConfigureData.class, new SettingsConfigureHandler());
         register("modalCallback", OpenModalData.ModalCallbackData.class, new ModalCallbackHandler());
-        register("fileHash", FileHashData.class, new FileHashHandler()); // Not used
-        register("uploadLogs", UploadLogsData.class, new UploadLogsHandler());
+        register("fileHash", FileHashData.class, new FileHashHandler(), Lane.BACKGROUND); // Not used
+        register("uploadLogs", UploadLogsData.class, new UploadLogsHandler(), Lane.BACKGROUND);
         register("getJavas", GetJavasData.class, new GetJavasHandler());
         register("instanceMods", InstanceModsData.class, new InstanceModsHandler());
         register("pong", PongLauncherData.class, new PongLauncherHandler());
         register("messageClient", MessageClientData.class, new MessageClientHandler()); // not really used but referenced
-        register("instanceInstallMod", InstanceInstallModData.class, new InstanceInstallModHandler());
+        register("instanceInstallMod", InstanceInstallModData.class, new InstanceInstallModHandler(), Lane.BULK);
         register("setInstanceArt", SetInstanceArtData.class, new SetInstanceArtHandler());
         register("instanceVersionInfo", InstanceVersionInfoData.class, new InstanceVersionInfoHandler());
+        register("instanceLogs", InstanceLogsHandler.Request.class, new InstanceLogsHandler());
+        register("instanceSearchLogs", InstanceSearchLogsHandler.Request.class, new InstanceSearchLogsHandler(), Lane.BULK);
 
         register("instanceGetBackups", InstanceGetBackupsHandler.Request.class, new InstanceGetBackupsHandler());
-        register("instanceRestoreBackup", InstanceRestoreBackupHandler.Request.class, new InstanceRestoreBackupHandler());
-        register("instanceDeleteBackup", InstanceDeleteBackupHandler.Request.class, new InstanceDeleteBackupHandler());
+        register("instanceRestoreBackup", InstanceRestoreBackupHandler.Request.class, new InstanceRestoreBackupHandler(), Lane.BULK);
+        register("instanceDeleteBackup", InstanceDeleteBackupHandler.Request.class, new InstanceDeleteBackupHandler(), Lane.BULK);
 
         register("profiles.get", BaseData.class, new GetProfilesHandler());
         register("profiles.remove", RemoveProfileHandler.Data.class, new RemoveProfileHandler());
@@ -95,11 +103,15 @@ public class WebSocketHandler {
         register("webRequest", WebRequestData.class, new WebRequestHandler());
         register("openDebugTools", BaseData.class, new OpenDebugToolsHandler());
         
-        register("purge", PurgeHandler.Data.class, new PurgeHandler());
+        register("purge", PurgeHandler.Data.class, new PurgeHandler(), Lane.BULK);
     }
 
     private static void register(String name, Class<? extends BaseData> clazz, IMessageHandler<? extends BaseData> handler) {
-        register.put(name, Pair.of(clazz, handler));
+        register(name, clazz, handler, Lane.INTERACTIVE);
+    }
+
+    private static void register(String name, Class<? extends BaseData> clazz, IMessageHandler<? extends BaseData> handler, Lane lane) {
+        register.put(name, new Registration(GSON.getAdapter(clazz), handler, lane, new MessageStats()));
     }
 
     public static int startWebsocket(PortMode portMode) {
@@ -122,6 +134,7 @@ public class WebSocketHandler {
     public static void stopWebsocket() {
         if (server == null) return;
         server.stopServer();
+        logMessageStats();
     }
 
     public static void sendMessage(BaseData data) {
@@ -135,24 +148,34 @@ public class WebSocketHandler {
     }
 
     public static void handleMessage(String data) {
-        JsonElement parse = JsonParser.parseString(data);
-        if (!parse.isJsonObject()) return;
-
-        JsonObject jsonObject = parse.getAsJsonObject();
-        if (!jsonObject.has("type")) return;
+        long start = System.nanoTime();
+        String type;
+        try {
+            type = peekType(data);
+        } catch (IOException | IllegalStateException ex) {
+            LOGGER.error("Failed to parse message.", ex);
+            return;
+        }
+        if (type == null) return;
 
-        String type = jsonObject.get("type").getAsString();
-        Pair<Class<? extends BaseData>, IMessageHandler<? extends BaseData>> entry = register.get(type);
-        IMessageHandler<? extends BaseData> iMessageHandler = entry.getRight();
-        if (iMessageHandler == null) {
+        Registration entry = register.get(type);
+        if (entry == null) {
             LOGGER.error("No handler for message type '{}'", type);
             return;
         }
 
         try {
-            BaseData parsedData = GSON.fromJson(data, entry.getLeft());
+            BaseData parsedData = entry.adapter.fromJson(data);
+            entry.stats.parsed(System.nanoTime() - start);
             if (AppMain.isDevMode || (parsedData.secret != null && parsedData.secret.equals(Constants.WEBSOCKET_SECRET))) {
-                CompletableFuture.runAsync(() -> iMessageHandler.handle(parsedData), AppMain.taskExecutor).exceptionally((t) -> {
+                CompletableFuture.runAsync(() -> {
+                    long handleStart = System.nanoTime();
+                    try {
+                        entry.handler.handle(parsedData);
+                    } finally {
+                        entry.stats.handled(System.nanoTime() - handleStart);
+                    }
+                }, entry.lane).exceptionally((t) -> {
                     LOGGER.error("Error handling message", t);
                     return null;
                 });
@@ -162,6 +185,48 @@ public class WebSocketHandler {
         }
     }
 
+    /**
+     * Find the top level {@code type} property of a message, without building a json tree.
+     * <p>
+     * The message can then be deserialized once, directly into its registered class.
+     *
+     * @param data The message.
+     * @return The type, {@code null} if the message is not an object or has no string type.
+     */
+    private static @Nullable String peekType(String data) throws IOException {
+        try (JsonReader reader = new JsonReader(new StringReader(data))) {
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) return null;
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (reader.nextName().equals("type") && reader.peek() == JsonToken.STRING) {
+                    return reader.nextString();
+                }
+                reader.skipValue();
+            }
+            return null;
+        }
+    }
+
+    private static void logMessageStats() {
+        if (!LOGGER.isDebugEnabled()) return;
+
+        register.entrySet().stream()
+                .filter(e -> e.getValue().stats.count.sum() > 0)
+                .sorted(Comparator.comparingLong(e -> -e.getValue().stats.handleNanos.sum()))
+                .forEach(e -> {
+                    MessageStats stats = e.getValue().stats;
+                    long count = stats.count.sum();
+                    LOGGER.debug("Message '{}': {} received, avg parse {}us, avg handle {}us, max handle {}ms.",
+                            e.getKey(),
+                            count,
+                            TimeUnit.NANOSECONDS.toMicros(stats.parseNanos.sum() / count),
+                            TimeUnit.NANOSECONDS.toMicros(stats.handleNanos.sum() / count),
+                            TimeUnit.NANOSECONDS.toMillis(stats.maxHandleNanos.get())
+                    );
+                });
+    }
+
     // TODO: Make this less hacky and ideally via a gradle task?
     public static void main(String[] args) throws IOException {
         LOGGER.info("Generating endpoints...");
@@ -181,7 +246,7 @@ public class WebSocketHandler {
             """);
         
         output.append("export type ApiEndpoints = ");
-        for (Map.Entry<String, Pair<Class<? extends BaseData>, IMessageHandler<? extends BaseData>>> entry : register.entrySet()) {
+        for (Map.Entry<String, Registration> entry : register.entrySet()) {
             output.append("\t").append("\"").append(entry.getKey()).append("\" |\n");
             if (entry.getKey().equals("pong")) {
                 output.append("\t\"ping\" |\n");
@@ -193,4 +258,68 @@ public class WebSocketHandler {
 
         Files.writeString(outputFile, output.toString());
     }
+
+    private record Registration(TypeAdapter<? extends BaseData> adapter, IMessageHandler<? extends BaseData> handler, Lane lane, MessageStats stats) { }
+
+    /**
+     * Which lane a handler runs in. Each lane has its own concurrency budget, so long-running
+     * handlers can never starve the quick round-trips the UI is waiting on.
+     * <p>
+     * Handlers run on virtual threads, a handler waiting for budget or blocked on I/O holds no platform thread.
+     */
+    enum Lane implements Executor {
+        /**
+         * Quick requests the UI is actively waiting on. The default.
+         */
+        INTERACTIVE(64),
+        /**
+         * Heavy disk or network operations, installs, copies, moves, etc.
+         */
+        BULK(4),
+        /**
+         * Work nobody is waiting on immediately.
+         */
+        BACKGROUND(2);
+
+        private final Semaphore budget;
+        private final ExecutorService executor;
+
+        Lane(int budget) {
+            this.budget = new Semaphore(budget, true);
+            executor = ExecutorUtils.newIoExecutor("WebSocket " + StringUtils.capitalize(name().toLowerCase(Locale.ROOT)));
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            executor.execute(() -> {
+                budget.acquireUninterruptibly();
+                try {
+                    command.run();
+                } finally {
+                    budget.release();
+                }
+            });
+        }
+    }
+
+    /**
+     * Parse and handle latency for a single message type.
+     */
+    private static class MessageStats {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder parseNanos = new LongAdder();
+        private final LongAdder handleNanos = new LongAdder();
+        private final AtomicLong maxHandleNanos = new AtomicLong();
+
+        void parsed(long nanos) {
+            count.increment();
+            parseNanos.add(nanos);
+        }
+
+        void handled(long nanos) {
+            handleNanos.add(nanos);
+            maxHandleNanos.accumulateAndGet(nanos, Math::max);
+        }
+    }
 }
@@ -1,7 +1,36 @@
 package dev.ftb.app.api.data;
 
+import org.jspecify.annotations.Nullable;
+
 public class BaseData {
     public String type;
     public String requestId;
     public String secret;
+
+    /**
+     * Messages which are only useful until a newer copy is available, such as progress updates,
+     * can return a key here. If a message with the same key is still waiting to be sent when a
+     * new one is queued, the older one is dropped.
+     *
+     * @return The key, or {@code null} if this message must always be sent.
+     */
+    public @Nullable String coalesceKey() {
+        return null;
+    }
+
+    /**
+     * Messages carrying raw bytes can return them here, clients which support binary frames will
+     * receive them raw instead of as a json number array.
+     *
+     * @return The attachment, or {@code null} if there is none.
+     */
+    public @Nullable BinaryAttachment binaryAttachment() {
+        return null;
+    }
+
+    /**
+     * @param path  The dotted json path of the property holding the bytes. E.g. {@code body.bytes}.
+     * @param bytes The bytes.
+     */
+    public record BinaryAttachment(String path, byte[] bytes) { }
 }
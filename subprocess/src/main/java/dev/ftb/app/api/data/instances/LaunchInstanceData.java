@@ -41,6 +41,11 @@ public class LaunchInstanceData extends BaseData {
             this.stepDesc = stepDesc;
             this.stepProgressHuman = stepProgressHuman;
         }
+
+        @Override
+        public String coalesceKey() {
+            return type + ":" + uuid + ":" + step;
+        }
     }
 
     public static class Reply extends BaseData {
@@ -76,12 +81,15 @@ public class LaunchInstanceData extends BaseData {
 
         // The UUID of the instance.
         public final UUID uuid;
+        // The line number of the first message in the session log, see instanceLogs to fetch other ranges.
+        public final long start;
         // The log messages to append.
         public final List<String> messages;
 
-        public Logs(UUID instanceId, List<String> messages) {
+        public Logs(UUID instanceId, long start, List<String> messages) {
             type = "launchInstance.logs";
             this.uuid = instanceId;
+            this.start = start;
             this.messages = messages;
         }
     }
@@ -59,4 +59,10 @@ public class OperationProgressUpdateData extends BaseData {
         this.bytes = bytes;
         this.totalBytes = totalBytes;
     }
+
+    @Override
+    public String coalesceKey() {
+        // Only updates within the same stage supersede each other, stage changes are always delivered.
+        return type + ":" + operation + ":" + metadata + ":" + stage;
+    }
 }
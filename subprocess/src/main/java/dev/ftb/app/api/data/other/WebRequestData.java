@@ -47,6 +47,13 @@ public class WebRequestData extends BaseData {
             this.status = status;
             this.statusMessage = statusMessage;
         }
+
+        @Override
+        public @Nullable BinaryAttachment binaryAttachment() {
+            if (body == null || body.bytes == null) return null;
+
+            return new BinaryAttachment("body.bytes", body.bytes);
+        }
     }
 
     public static class Body {
@@ -0,0 +1,68 @@
+package dev.ftb.app.api.handlers.instances;
+
+import dev.ftb.app.Instances;
+import dev.ftb.app.api.WebSocketHandler;
+import dev.ftb.app.api.data.BaseData;
+import dev.ftb.app.api.handlers.IMessageHandler;
+import dev.ftb.app.pack.Instance;
+import dev.ftb.app.pack.SessionLog;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Page through the console log of an instance's current or most recent run.
+ */
+public class InstanceLogsHandler implements IMessageHandler<InstanceLogsHandler.Request> {
+
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    private static final int MAX_PAGE_SIZE = 5000;
+
+    @Override
+    public void handle(Request data) {
+        Instance instance = Instances.getInstance(UUID.fromString(data.uuid));
+        SessionLog log = instance != null ? instance.getLauncher().getSessionLog() : null;
+        if (log == null) {
+            WebSocketHandler.sendMessage(new Reply(data, false, 0, List.of()));
+            return;
+        }
+
+        try {
+            SessionLog.Page page = log.read(data.start, Math.min(data.count, MAX_PAGE_SIZE));
+            WebSocketHandler.sendMessage(new Reply(data, true, page.total(), page.lines()));
+        } catch (IOException ex) {
+            LOGGER.error("Failed to read session log for {}.", data.uuid, ex);
+            WebSocketHandler.sendMessage(new Reply(data, false, 0, List.of()));
+        }
+    }
+
+    public static class Request extends BaseData {
+        public String uuid;
+        // The first line to fetch.
+        public long start;
+        // The number of lines to fetch, capped at 5000.
+        public int count;
+    }
+
+    private static class Reply extends Request {
+        public boolean success;
+        // The total number of lines in the log.
+        public long total;
+        public List<String> lines;
+
+        public Reply(Request data, boolean success, long total, List<String> lines) {
+            this.requestId = data.requestId;
+            this.uuid = data.uuid;
+            this.start = data.start;
+            this.count = data.count;
+            this.type = data.type + "Reply";
+            this.success = success;
+            this.total = total;
+            this.lines = lines;
+        }
+    }
+}
@@ -8,23 +8,24 @@ import dev.ftb.app.api.handlers.IMessageHandler;
 import dev.ftb.app.data.InstanceModifications;
 import dev.ftb.app.data.mod.CurseMetadata;
 import dev.ftb.app.data.mod.ModInfo;
-import dev.ftb.app.data.mod.ModManifest;
 import dev.ftb.app.data.modpack.ModpackVersionManifest;
 import dev.ftb.app.data.modpack.ModpackVersionModsManifest;
 import dev.ftb.app.pack.Instance;
 import dev.ftb.app.util.CurseMetadataCache;
 import dev.ftb.app.util.ModVersionCache;
-import org.apache.commons.lang3.tuple.Pair;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.jspecify.annotations.Nullable;
 
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 public class InstanceModsHandler implements IMessageHandler<InstanceModsData> {
 
     private static final Logger LOGGER = LogManager.getLogger();
+    // The number of mod manifest queries allowed in flight at once whilst checking for updates.
+    private static final int MAX_CONCURRENT_CHECKS = 8;
 
     @Override
     public void handle(InstanceModsData data) {
@@ -58,7 +59,12 @@ public class InstanceModsHandler implements IMessageHandler<InstanceModsData> {
         return CompletableFuture.completedFuture(mods)
                 .thenApplyAsync(modsList -> {
                     var modsManifest = instance.getModsManifest();
-                    var knownFileNames = modsManifest != null ? modsManifest.getMods().stream().map(ModpackVersionModsManifest.Mod::getFilename).toList() : List.of();
+                    Set<String> knownFileNames = new HashSet<>();
+                    if (modsManifest != null) {
+                        for (var mod : modsManifest.getMods()) {
+                            knownFileNames.add(mod.getFilename());
+                        }
+                    }
                     
                     var unknownModHashes = mods.stream()
                         .filter(e -> !knownFileNames.contains(e.fileName()))
@@ -67,35 +73,32 @@ public class InstanceModsHandler implements IMessageHandler<InstanceModsData> {
                         .filter(e -> !e.equals("-1")) // -1 is a placeholder for no hash.
                         .toList();
                     
-                    List<ModpackVersionModsManifest.Mod> resolvedMods = new ArrayList<>();
+                    // File name -> mod, first one wins.
+                    Map<String, ModpackVersionModsManifest.Mod> resolvedMods = new HashMap<>();
                     if (modsManifest != null) {
-                        resolvedMods.addAll(modsManifest.getMods());
+                        for (var mod : modsManifest.getMods()) {
+                            resolvedMods.putIfAbsent(mod.getFilename(), mod);
+                        }
                     }
                     
                     if (!unknownModHashes.isEmpty()) {
                         Map<String, CurseMetadataCache.FileMetadata> resolvedMetaData = CurseMetadataCache.get().queryMetadata(unknownModHashes.stream().map(Object::toString).toArray(String[]::new));
-                        resolvedMods.addAll(resolvedMetaData
-                            .values()
-                            .stream()
-                            .map(ModpackVersionModsManifest.Mod::fromCurseMetadata)
-                            .toList()
-                        );
+                        for (var metadata : resolvedMetaData.values()) {
+                            var mod = ModpackVersionModsManifest.Mod.fromCurseMetadata(metadata);
+                            resolvedMods.putIfAbsent(mod.getFilename(), mod);
+                        }
                     }
 
                     var richModData = mods.stream()
-                        .map(e -> Pair.of(
+                        .map(e -> new InstanceModsData.RichModDataBinding(
                             e,
-                            resolvedMods.stream().filter(a -> a.getFilename().equals(e.fileName())).findFirst()
-                        ))
-                        .map(pair -> new InstanceModsData.RichModDataBinding(
-                            pair.getKey(),
-                            pair.getValue().map(e -> CurseMetadata.full(
-                                e.getCurseProject(),
-                                e.getCurseFile(),
-                                e.getName(),
-                                e.getCurseSlug(),
-                                e.getSynopsis(),
-                                e.getIcon()
+                            Optional.ofNullable(resolvedMods.get(e.fileName())).map(mod -> CurseMetadata.full(
+                                mod.getCurseProject(),
+                                mod.getCurseFile(),
+                                mod.getName(),
+                                mod.getCurseSlug(),
+                                mod.getSynopsis(),
+                                mod.getIcon()
                             )).orElse(null))
                         )
                         .toList();
@@ -104,18 +107,51 @@ public class InstanceModsHandler implements IMessageHandler<InstanceModsData> {
                     
                     return richModData.stream().filter(e -> e.richData() != null).toList();
                 })
-                .thenAccept((richDataMods) -> {
+                .thenCompose((richDataMods) -> {
                     // We have no curse data or no ModLoader or no Game version, update checking is not possible.
-                    if (modLoader == null || mcVersion == null) return;
+                    if (modLoader == null || mcVersion == null) return CompletableFuture.completedFuture(null);
+
+                    return checkUpdates(data, richDataMods, modLoader, mcVersion);
+                })
+                .thenRunAsync(() -> 
+                    WebSocketHandler.sendMessage(new InstanceModsData.UpdateCheckingFinished(data)
+                ), AppMain.taskExecutor);
+    }
+
+    /**
+     * Check all the given mods for updates, sending an {@link InstanceModsData.UpdateAvailable} for each
+     * as soon as its manifest is available.
+     * <p>
+     * Each project is only queried once, with at most {@link #MAX_CONCURRENT_CHECKS} queries in flight.
+     */
+    private static CompletableFuture<Void> checkUpdates(InstanceModsData data, List<InstanceModsData.RichModDataBinding> mods, ModpackVersionManifest.Target modLoader, String mcVersion) {
+        Map<Long, List<InstanceModsData.RichModDataBinding>> byProject = new LinkedHashMap<>();
+        for (var mod : mods) {
+            if (mod.richData() == null) continue; // not possible, stopping ide complaints
+            byProject.computeIfAbsent(mod.richData().curseProject(), e -> new ArrayList<>()).add(mod);
+        }
+
+        Queue<Map.Entry<Long, List<InstanceModsData.RichModDataBinding>>> queue = new ConcurrentLinkedQueue<>(byProject.entrySet());
+        CompletableFuture<?>[] lanes = new CompletableFuture[Math.min(MAX_CONCURRENT_CHECKS, queue.size())];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = nextUpdateCheck(data, queue, modLoader, mcVersion);
+        }
+        return CompletableFuture.allOf(lanes);
+    }
+
+    private static CompletableFuture<Void> nextUpdateCheck(InstanceModsData data, Queue<Map.Entry<Long, List<InstanceModsData.RichModDataBinding>>> queue, ModpackVersionManifest.Target modLoader, String mcVersion) {
+        var next = queue.poll();
+        if (next == null) return CompletableFuture.completedFuture(null);
 
-                    for (var mod : richDataMods) {
-                        if (mod.richData() == null) continue; // not possible, stopping ide complaints
-                        ModManifest manifest = ModVersionCache.get().queryMod(mod.richData().curseProject()).join();
-                        if (manifest == null) continue;
+        return ModVersionCache.get().queryMod(next.getKey())
+                .thenAccept(manifest -> {
+                    if (manifest == null) return;
 
-                        var version = manifest.findLatestCompatibleVersion(modLoader.getName(), mcVersion);
-                        if (version == null) continue;
+                    var version = manifest.findLatestCompatibleVersion(modLoader.getName(), mcVersion);
+                    if (version == null) return;
 
+                    for (var mod : next.getValue()) {
+                        assert mod.richData() != null;
                         if (version.getId() <= mod.richData().curseFile()) continue;
                         WebSocketHandler.sendMessage(new InstanceModsData.UpdateAvailable(
                             data,
@@ -131,9 +167,11 @@ public class InstanceModsHandler implements IMessageHandler<InstanceModsData> {
                         ));
                     }
                 })
-                .thenRunAsync(() -> 
-                    WebSocketHandler.sendMessage(new InstanceModsData.UpdateCheckingFinished(data)
-                ), AppMain.taskExecutor);
+                .exceptionally(ex -> {
+                    LOGGER.warn("Failed to check for updates to mod {}.", next.getKey(), ex);
+                    return null;
+                })
+                .thenCompose(v -> nextUpdateCheck(data, queue, modLoader, mcVersion));
     }
     
 //    private static @Nullable CurseMetadata lookupCurseData(InstanceModsData data, @Nullable CurseMetadata meta, CompletableFuture<ModpackVersionModsManifest> modsManifestFuture, ModInfo mod) {
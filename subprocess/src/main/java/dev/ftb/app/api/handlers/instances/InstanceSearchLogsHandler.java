@@ -0,0 +1,120 @@
+package dev.ftb.app.api.handlers.instances;
+
+import dev.ftb.app.Instances;
+import dev.ftb.app.api.WebSocketHandler;
+import dev.ftb.app.api.data.BaseData;
+import dev.ftb.app.api.handlers.IMessageHandler;
+import dev.ftb.app.pack.Instance;
+import dev.ftb.app.pack.LogSearch;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Search an instance's log files, a page at a time.
+ * <p>
+ * Send the reply's {@code nextLine} back as {@code startLine} to fetch the next page.
+ */
+public class InstanceSearchLogsHandler implements IMessageHandler<InstanceSearchLogsHandler.Request> {
+
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    @Override
+    public void handle(Request data) {
+        Instance instance = Instances.getInstance(UUID.fromString(data.uuid));
+        if (instance == null) {
+            WebSocketHandler.sendMessage(new Reply(data, "error", "Instance not found.", null));
+            return;
+        }
+
+        // Gson maps unknown constants to null.
+        LogFile logFile = data.file != null ? data.file : LogFile.CONSOLE;
+        Path file = instance.getDir().resolve("logs").resolve(logFile.fileName);
+        if (Files.notExists(file)) {
+            WebSocketHandler.sendMessage(new Reply(data, "success", "", new LogSearch.Result(List.of(), -1, 0)));
+            return;
+        }
+
+        Pattern pattern = null;
+        if (data.query != null && !data.query.isEmpty()) {
+            try {
+                int flags = data.caseSensitive ? 0 : Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+                pattern = Pattern.compile(data.regex ? data.query : Pattern.quote(data.query), flags);
+            } catch (PatternSyntaxException ex) {
+                WebSocketHandler.sendMessage(new Reply(data, "error", ex.getDescription(), null));
+                return;
+            }
+        }
+
+        Set<LogSearch.LogLevel> levels = data.levels == null || data.levels.isEmpty()
+                ? Set.of()
+                : EnumSet.copyOf(data.levels);
+        int limit = Math.clamp(data.limit, 1, MAX_PAGE_SIZE);
+
+        try {
+            LogSearch.Result result = LogSearch.search(file, new LogSearch.Query(pattern, data.regex ? null : data.query, levels, Math.max(0, data.startLine), limit));
+            WebSocketHandler.sendMessage(new Reply(data, "success", "", result));
+        } catch (IOException ex) {
+            LOGGER.error("Failed to search {} for instance {}.", file, data.uuid, ex);
+            WebSocketHandler.sendMessage(new Reply(data, "error", "Failed to read log file.", null));
+        }
+    }
+
+    public enum LogFile {
+        CONSOLE("console.log"),
+        LATEST("latest.log");
+
+        private final String fileName;
+
+        LogFile(String fileName) {
+            this.fileName = fileName;
+        }
+    }
+
+    public static class Request extends BaseData {
+        public String uuid;
+        // The log to search, defaults to the console log.
+        public @Nullable LogFile file = LogFile.CONSOLE;
+        // The text to search for, empty to match every line.
+        public @Nullable String query;
+        public boolean regex;
+        public boolean caseSensitive;
+        // The levels to include, empty to include every level.
+        public @Nullable List<LogSearch.LogLevel> levels;
+        // The line to start searching from.
+        public long startLine;
+        // The maximum number of matches to return, capped at 1000.
+        public int limit = 200;
+    }
+
+    private static class Reply extends BaseData {
+        public String status;
+        public String message;
+        public List<LogSearch.Match> matches;
+        // The line to continue from for the next page, -1 if there are no more.
+        public long nextLine;
+        public long totalLines;
+
+        public Reply(Request data, String status, String message, LogSearch.@Nullable Result result) {
+            this.requestId = data.requestId;
+            this.type = data.type + "Reply";
+            this.status = status;
+            this.message = message;
+            this.matches = result != null ? result.matches() : List.of();
+            this.nextLine = result != null ? result.nextLine() : -1;
+            this.totalLines = result != null ? result.totalLines() : 0;
+        }
+    }
+}
@@ -33,12 +33,7 @@ public class InstanceModifications {
                 if (override.getMurmurHash() == -1) {
                     var modPath = instance.path.resolve("mods").resolve(override.getFileName());
                     if (Files.exists(modPath)) {
-                        try {
-                            var bytes = Files.readAllBytes(modPath);
-                            override.murmurHash = HashingUtils.createCurseForgeMurmurHash(bytes);
-                        } catch (Exception e) {
-                            override.murmurHash = 0;
-                        }
+                        override.murmurHash = HashingUtils.createCurseForgeMurmurHash(modPath);
                     }
                 }
             }
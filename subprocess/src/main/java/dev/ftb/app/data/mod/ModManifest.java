@@ -4,19 +4,16 @@ import com.google.common.hash.HashCode;
 import com.google.common.hash.Hashing;
 import com.google.gson.Gson;
 import com.google.gson.JsonParseException;
-import dev.ftb.app.Constants;
 import dev.ftb.app.install.FileValidation;
 import dev.ftb.app.install.ModCollector;
+import dev.ftb.app.util.ApiCache;
 import dev.ftb.app.util.ModpackApiUtils;
 import net.covers1624.quack.gson.JsonUtils;
-import net.covers1624.quack.net.DownloadAction;
-import net.covers1624.quack.net.okhttp.OkHttpDownloadAction;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.jspecify.annotations.Nullable;
 
 import java.io.IOException;
-import java.io.StringWriter;
 import java.util.*;
 
 public class ModManifest {
@@ -57,16 +54,8 @@ public class ModManifest {
     }
 
     public static ModManifest queryManifest(String id) throws IOException, JsonParseException {
-        StringWriter sw = new StringWriter();
-        DownloadAction action = new OkHttpDownloadAction()
-                .setClient(Constants.httpClient())
-                .setUrl(ModpackApiUtils.getModpacksApi() + "/mod/" + id)
-                .setDest(sw);
-        
-        ModpackApiUtils.injectBearerHeader(action);
-        action.execute();
-
-        return JsonUtils.parse(GSON, sw.toString(), ModManifest.class);
+        String body = ApiCache.get().fetch(ModpackApiUtils.getModpacksApi() + "/mod/" + id);
+        return JsonUtils.parse(GSON, body, ModManifest.class);
     }
 
     public @Nullable Version findVersion(long versionId) {
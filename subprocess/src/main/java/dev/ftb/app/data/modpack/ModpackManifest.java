@@ -4,18 +4,15 @@ import com.google.common.hash.HashCode;
 import com.google.gson.Gson;
 import com.google.gson.JsonParseException;
 import com.google.gson.annotations.JsonAdapter;
-import dev.ftb.app.Constants;
+import dev.ftb.app.util.ApiCache;
 import dev.ftb.app.util.ModpackApiUtils;
 import net.covers1624.quack.gson.HashCodeAdapter;
 import net.covers1624.quack.gson.JsonUtils;
-import net.covers1624.quack.net.DownloadAction;
-import net.covers1624.quack.net.okhttp.OkHttpDownloadAction;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.jspecify.annotations.Nullable;
 
 import java.io.IOException;
-import java.io.StringWriter;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -45,20 +42,12 @@ public class ModpackManifest {
     public static ModpackManifest queryManifest(long packId, boolean isPrivate, byte packType) throws IOException, JsonParseException {
         String url = ModpackApiUtils.getModpacksEndpoint(isPrivate, packType) + packId;
         LOGGER.info("Querying Modpack version manifest: {}", url);
-        StringWriter sw = new StringWriter();
-        DownloadAction action = new OkHttpDownloadAction()
-                .setClient(Constants.httpClient())
-                .setUserAgent(Constants.USER_AGENT)
-                .setUrl(url)
-                .setDest(sw);
-        
-        ModpackApiUtils.injectBearerHeader(action);
-        
-        action.execute();
-
-        ModpackManifest manifest = JsonUtils.parse(GSON, sw.toString(), ModpackManifest.class);
+        String body = ApiCache.get().fetch(url);
+
+        ModpackManifest manifest = JsonUtils.parse(GSON, body, ModpackManifest.class);
         if (manifest.getStatus().equals("error")) {
-            LOGGER.warn("Query failed. Got: " + sw);
+            LOGGER.warn("Query failed. Got: " + body);
+            ApiCache.get().invalidate(url);
             return null;
         }
 
@@ -7,12 +7,12 @@ import com.google.gson.annotations.JsonAdapter;
 import com.google.gson.annotations.SerializedName;
 import dev.ftb.app.Constants;
 import dev.ftb.app.install.FileValidation;
+import dev.ftb.app.util.ApiCache;
 import dev.ftb.app.util.FileUtils;
 import dev.ftb.app.util.ModpackApiUtils;
 import net.covers1624.quack.gson.HashCodeAdapter;
 import net.covers1624.quack.gson.JsonUtils;
-import net.covers1624.quack.net.DownloadAction;
-import net.covers1624.quack.net.okhttp.OkHttpDownloadAction;
+import net.covers1624.quack.util.SneakyUtils;
 import okhttp3.*;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.tuple.Pair;
@@ -21,15 +21,17 @@ import org.apache.logging.log4j.Logger;
 import org.jspecify.annotations.Nullable;
 
 import java.io.IOException;
-import java.io.StringWriter;
 import java.lang.reflect.Type;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
 
 import static java.util.Objects.requireNonNull;
+import static net.covers1624.quack.util.SneakyUtils.sneak;
 
 @SuppressWarnings ("FieldMayBeFinal") // Non-Final for Gson.
 public class ModpackVersionManifest {
@@ -102,26 +104,43 @@ public class ModpackVersionManifest {
 
     @Nullable
     public static Pair<ModpackManifest, ModpackVersionManifest> queryManifests(long packId, long versionId, boolean isPrivate, byte packType) throws IOException, JsonParseException {
-        ModpackManifest modpackManifest = ModpackManifest.queryManifest(packId, isPrivate, packType);
-        if (modpackManifest != null) {
-            ModpackVersionManifest versionManifest = queryManifest(packId, versionId, isPrivate, packType);
-            if (versionManifest != null) {
-                return Pair.of(
-                        modpackManifest,
-                        versionManifest
-                );
+        // Query both endpoints at once, we only need the fallback if the preferred endpoint doesn't know the pack.
+        CompletableFuture<@Nullable ModpackManifest> modpackManifest = queryAsync(() -> ModpackManifest.queryManifest(packId, isPrivate, packType));
+        CompletableFuture<@Nullable ModpackVersionManifest> versionManifest = queryAsync(() -> queryManifest(packId, versionId, isPrivate, packType));
+        CompletableFuture<@Nullable ModpackManifest> fallbackModpackManifest = queryAsync(() -> ModpackManifest.queryManifest(packId, !isPrivate, packType));
+        CompletableFuture<@Nullable ModpackVersionManifest> fallbackVersionManifest = queryAsync(() -> queryManifest(packId, versionId, !isPrivate, packType));
+
+        ModpackManifest manifest = join(modpackManifest);
+        if (manifest != null) {
+            ModpackVersionManifest version = join(versionManifest);
+            if (version != null) {
+                return Pair.of(manifest, version);
             }
         }
-        modpackManifest = ModpackManifest.queryManifest(packId, !isPrivate, packType);
+        manifest = join(fallbackModpackManifest);
 
-        if (modpackManifest == null) return null; // We tried, really doesn't exist..
+        if (manifest == null) return null; // We tried, really doesn't exist..
 
         return Pair.of(
-                modpackManifest,
-                queryManifest(packId, versionId, !isPrivate, packType)
+                manifest,
+                join(fallbackVersionManifest)
         );
     }
 
+    private static <T> CompletableFuture<@Nullable T> queryAsync(SneakyUtils.ThrowingSupplier<@Nullable T, IOException> func) {
+        return CompletableFuture.supplyAsync(sneak(func), ApiCache.get().executor());
+    }
+
+    private static <T> @Nullable T join(CompletableFuture<@Nullable T> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof IOException ioEx) throw ioEx;
+            if (ex.getCause() instanceof RuntimeException rtEx) throw rtEx;
+            throw ex;
+        }
+    }
+
     @Nullable
     public static ModpackVersionManifest queryManifest(long packId, long versionId, boolean isPrivate, byte packType) throws IOException, JsonParseException {        
         return queryManifest(ModpackApiUtils.getModpacksEndpoint(isPrivate, packType) + packId + "/" + versionId);
@@ -130,20 +149,12 @@ public class ModpackVersionManifest {
     @Nullable
     public static ModpackVersionManifest queryManifest(String url) throws IOException, JsonParseException {
         LOGGER.info("Querying Modpack version manifest: {}", url);
-        StringWriter sw = new StringWriter();
-        DownloadAction action = new OkHttpDownloadAction()
-                .setClient(Constants.httpClient())
-                .setUserAgent(Constants.USER_AGENT)
-                .setUrl(url)
-                .setDest(sw);
-        
-        ModpackApiUtils.injectBearerHeader(action);
-        
-        action.execute();
+        String body = ApiCache.get().fetch(url);
 
-        ModpackVersionManifest manifest = JsonUtils.parse(GSON, sw.toString(), ModpackVersionManifest.class);
+        ModpackVersionManifest manifest = JsonUtils.parse(GSON, body, ModpackVersionManifest.class);
         if (manifest.getStatus().equals("error")) {
             LOGGER.error("Failed to request manifest got: " + manifest.getMessage());
+            ApiCache.get().invalidate(url);
             return null;
         }
 
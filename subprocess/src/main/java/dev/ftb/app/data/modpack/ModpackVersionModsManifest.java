@@ -2,19 +2,16 @@ package dev.ftb.app.data.modpack;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonParseException;
-import dev.ftb.app.Constants;
+import dev.ftb.app.util.ApiCache;
 import dev.ftb.app.util.CurseMetadataCache;
 import dev.ftb.app.util.ModpackApiUtils;
 import net.covers1624.quack.gson.JsonUtils;
 import net.covers1624.quack.io.IOUtils;
-import net.covers1624.quack.net.DownloadAction;
-import net.covers1624.quack.net.okhttp.OkHttpDownloadAction;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.jspecify.annotations.Nullable;
 
 import java.io.IOException;
-import java.io.StringWriter;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.LinkedList;
@@ -43,16 +40,8 @@ public class ModpackVersionModsManifest {
     public static ModpackVersionModsManifest query(long packId, long versionId, boolean isPrivate, byte packType) throws IOException, JsonParseException {
         String url = ModpackApiUtils.getModpacksEndpoint(isPrivate, packType) + packId + "/" + versionId + "/mods";
         LOGGER.info("Querying Modpack version mods manifest: {}", url);
-        StringWriter sw = new StringWriter();
-        DownloadAction action = new OkHttpDownloadAction()
-                .setClient(Constants.httpClient())
-                .setUrl(url)
-                .setDest(sw);
-        
-        ModpackApiUtils.injectBearerHeader(action);
-        action.execute();
-
-        return JsonUtils.parse(GSON, sw.toString(), ModpackVersionModsManifest.class);
+        String body = ApiCache.get().fetch(url);
+        return JsonUtils.parse(GSON, body, ModpackVersionModsManifest.class);
     }
 
     public List<Mod> getMods() {
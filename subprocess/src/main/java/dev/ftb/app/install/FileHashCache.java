@@ -0,0 +1,272 @@
+package dev.ftb.app.install;
+
+import com.google.common.hash.HashCode;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import dev.ftb.app.AppMain;
+import dev.ftb.app.install.tasks.InlineHasher;
+import net.covers1624.quack.io.IOUtils;
+import net.covers1624.quack.util.MultiHasher;
+import net.covers1624.quack.util.MultiHasher.HashFunc;
+import net.covers1624.quack.util.MultiHasher.HashResult;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jspecify.annotations.Nullable;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.LongConsumer;
+
+/**
+ * A persistent cache of file hashes, keyed by file path and stamped with the file's
+ * size, modification time and file key.
+ * <p>
+ * If a file's stamp is unchanged since it was last hashed, the previously computed hashes
+ * are returned instead of re-reading the file. This turns re-validating gigabytes of assets,
+ * libraries and mods into a metadata scan.
+ * <p>
+ * Files modified within {@link #RACY_WINDOW} of being hashed are never trusted, as a
+ * subsequent write within the same timestamp granularity would not change their stamp.
+ */
+public class FileHashCache {
+
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    private static final int MAGIC = 0x46544648;
+    private static final int VERSION = 1;
+    private static final long RACY_WINDOW = TimeUnit.SECONDS.toMillis(2);
+    private static final long SAVE_DELAY = 5;
+    // Entries not used in this long are dropped on load.
+    private static final long EXPIRY = TimeUnit.DAYS.toMillis(30);
+
+    private static final int BUFFER_SIZE = 1024 * 1024;
+    // Direct buffers are expensive to allocate, and callers may be short-lived virtual threads, so pool them.
+    private static final Queue<ByteBuffer> BUFFERS = new ConcurrentLinkedQueue<>();
+
+    private static final ScheduledExecutorService SAVE_EXECUTOR = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+            .setNameFormat("FileHashCache Save")
+            .setDaemon(true)
+            .build()
+    );
+
+    @Nullable
+    private static FileHashCache instance;
+
+    private final Path file;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Object saveLock = new Object();
+    @Nullable
+    private ScheduledFuture<?> pendingSave;
+
+    public static synchronized FileHashCache get() {
+        if (instance == null) {
+            instance = new FileHashCache(AppMain.paths().workingDir().resolve(".file_hashes.bin"));
+        }
+
+        return instance;
+    }
+
+    /**
+     * Flush any pending changes to disk, if the cache has been loaded.
+     */
+    public static synchronized void saveIfLoaded() {
+        if (instance != null) {
+            instance.save();
+        }
+    }
+
+    FileHashCache(Path file) {
+        this.file = file;
+        load();
+    }
+
+    /**
+     * Get the hashes for the given file, computing them if the file has changed since it was last hashed.
+     *
+     * @param path  The file.
+     * @param funcs The hash functions required.
+     * @return The hashes, containing at least the requested functions.
+     * @throws IOException If an IO error occurs.
+     */
+    public Map<HashFunc, HashCode> hash(Path path, Collection<HashFunc> funcs) throws IOException {
+        return hash(path, funcs, null);
+    }
+
+    /**
+     * Overload of {@link #hash(Path, Collection)} which reports progress whilst hashing.
+     *
+     * @param path     The file.
+     * @param funcs    The hash functions required.
+     * @param progress Called with the number of bytes read for each chunk of the file hashed.
+     *                 Not called if the hashes were already known.
+     * @return The hashes, containing at least the requested functions.
+     * @throws IOException If an IO error occurs.
+     */
+    public Map<HashFunc, HashCode> hash(Path path, Collection<HashFunc> funcs, @Nullable LongConsumer progress) throws IOException {
+        path = path.toAbsolutePath().normalize();
+        String key = path.toString();
+        BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+        Stamp stamp = Stamp.of(attrs);
+
+        Entry entry = entries.get(key);
+        if (entry != null && entry.stamp.equals(stamp) && entry.hashes.keySet().containsAll(funcs)) {
+            long now = System.currentTimeMillis();
+            if (now - entry.lastUsed > TimeUnit.DAYS.toMillis(1)) {
+                entries.replace(key, entry, entry.withLastUsed(now));
+                scheduleSave();
+            }
+            return entry.hashes;
+        }
+
+        Map<HashFunc, HashCode> hashes = computeHashes(path, EnumSet.copyOf(funcs), progress);
+
+        // Re-read after hashing, if the file changed whilst we were reading it, don't cache the result.
+        long now = System.currentTimeMillis();
+        if (stamp.equals(Stamp.of(Files.readAttributes(path, BasicFileAttributes.class))) && now - stamp.mtime >= RACY_WINDOW) {
+            entries.put(key, new Entry(stamp, Collections.unmodifiableMap(hashes), now));
+            scheduleSave();
+        }
+        return hashes;
+    }
+
+    /**
+     * Convenience overload of {@link #hash(Path, Collection)} for a single function.
+     *
+     * @param path The file.
+     * @param func The hash function.
+     * @return The hash.
+     * @throws IOException If an IO error occurs.
+     */
+    public HashCode hash(Path path, HashFunc func) throws IOException {
+        return hash(path, List.of(func)).get(func);
+    }
+
+    private static Map<HashFunc, HashCode> computeHashes(Path path, Set<HashFunc> funcs, @Nullable LongConsumer progress) throws IOException {
+        InlineHasher hasher = InlineHasher.create(funcs);
+        if (hasher == null) {
+            MultiHasher multiHasher = new MultiHasher(funcs);
+            multiHasher.load(path);
+            HashResult result = multiHasher.finish();
+            if (progress != null) {
+                progress.accept(Files.size(path));
+            }
+
+            Map<HashFunc, HashCode> hashes = new EnumMap<>(HashFunc.class);
+            for (HashFunc func : funcs) {
+                hashes.put(func, result.get(func));
+            }
+            return hashes;
+        }
+
+        // Read straight into a direct buffer, avoiding a copy through the heap for large files.
+        ByteBuffer buffer = BUFFERS.poll();
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            int read;
+            while ((read = channel.read(buffer.clear())) != -1) {
+                hasher.write(buffer.flip());
+                if (progress != null) {
+                    progress.accept(read);
+                }
+            }
+        } finally {
+            BUFFERS.add(buffer);
+        }
+        return hasher.finish();
+    }
+
+    private void scheduleSave() {
+        synchronized (saveLock) {
+            if (pendingSave != null && !pendingSave.isDone()) return;
+            pendingSave = SAVE_EXECUTOR.schedule(this::save, SAVE_DELAY, TimeUnit.SECONDS);
+        }
+    }
+
+    private void load() {
+        if (Files.notExists(file)) return;
+
+        long now = System.currentTimeMillis();
+        try (DataInputStream dis = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (dis.readInt() != MAGIC || dis.readInt() != VERSION) {
+                LOGGER.warn("Unknown file hash cache format, ignoring.");
+                return;
+            }
+            int count = dis.readInt();
+            for (int i = 0; i < count; i++) {
+                String key = dis.readUTF();
+                Stamp stamp = new Stamp(dis.readLong(), dis.readLong(), dis.readUTF());
+                long lastUsed = dis.readLong();
+                int numHashes = dis.readUnsignedByte();
+                Map<HashFunc, HashCode> hashes = new EnumMap<>(HashFunc.class);
+                for (int j = 0; j < numHashes; j++) {
+                    HashFunc func = HashFunc.valueOf(dis.readUTF());
+                    byte[] bytes = new byte[dis.readUnsignedByte()];
+                    dis.readFully(bytes);
+                    hashes.put(func, HashCode.fromBytes(bytes));
+                }
+                if (now - lastUsed < EXPIRY) {
+                    entries.put(key, new Entry(stamp, Collections.unmodifiableMap(hashes), lastUsed));
+                }
+            }
+        } catch (IOException | IllegalArgumentException ex) {
+            LOGGER.warn("Failed to load file hash cache, starting fresh.", ex);
+            entries.clear();
+        }
+    }
+
+    void save() {
+        synchronized (saveLock) {
+            Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+            try {
+                try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(IOUtils.makeParents(tempFile))))) {
+                    Map<String, Entry> snapshot = new HashMap<>(entries);
+                    dos.writeInt(MAGIC);
+                    dos.writeInt(VERSION);
+                    dos.writeInt(snapshot.size());
+                    for (Map.Entry<String, Entry> e : snapshot.entrySet()) {
+                        Entry entry = e.getValue();
+                        dos.writeUTF(e.getKey());
+                        dos.writeLong(entry.stamp.size);
+                        dos.writeLong(entry.stamp.mtime);
+                        dos.writeUTF(entry.stamp.fileKey);
+                        dos.writeLong(entry.lastUsed);
+                        dos.writeByte(entry.hashes.size());
+                        for (Map.Entry<HashFunc, HashCode> hash : entry.hashes.entrySet()) {
+                            byte[] bytes = hash.getValue().asBytes();
+                            dos.writeUTF(hash.getKey().name());
+                            dos.writeByte(bytes.length);
+                            dos.write(bytes);
+                        }
+                    }
+                }
+                Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException ex) {
+                LOGGER.warn("Failed to save file hash cache.", ex);
+            }
+        }
+    }
+
+    private record Stamp(long size, long mtime, String fileKey) {
+
+        static Stamp of(BasicFileAttributes attrs) {
+            Object fileKey = attrs.fileKey();
+            return new Stamp(attrs.size(), attrs.lastModifiedTime().toMillis(), fileKey != null ? fileKey.toString() : "");
+        }
+    }
+
+    private record Entry(Stamp stamp, Map<HashFunc, HashCode> hashes, long lastUsed) {
+
+        Entry withLastUsed(long lastUsed) {
+            return new Entry(stamp, hashes, lastUsed);
+        }
+    }
+}
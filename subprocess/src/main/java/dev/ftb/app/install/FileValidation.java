@@ -3,7 +3,6 @@ package dev.ftb.app.install;
 import com.google.common.hash.HashCode;
 import com.google.common.hash.HashFunction;
 import dev.ftb.app.install.tasks.DownloadTask.DownloadValidation;
-import net.covers1624.quack.util.MultiHasher;
 import net.covers1624.quack.util.MultiHasher.HashFunc;
 import net.covers1624.quack.util.MultiHasher.HashResult;
 import org.jspecify.annotations.Nullable;
@@ -84,6 +83,8 @@ public class FileValidation {
 
     /**
      * Checks if this validation passes the specified File.
+     * <p>
+     * Hashes are looked up in the {@link FileHashCache}, so unchanged files are not re-read.
      *
      * @param path The file to validate.
      * @return If the file is validated by this validation.
@@ -92,9 +93,16 @@ public class FileValidation {
      */
     public boolean validate(Path path) throws IOException {
         if (expectedHashes.isEmpty()) return validate(path, null);
-        MultiHasher hasher = new MultiHasher(expectedHashes.keySet());
-        hasher.load(path);
-        return validate(path, hasher.finish());
+        // Don't bother hashing a file which is the wrong size.
+        if (expectedSize != -1 && Files.size(path) != expectedSize) return false;
+
+        Map<HashFunc, HashCode> hashes = FileHashCache.get().hash(path, expectedHashes.keySet());
+        for (Map.Entry<HashFunc, HashCode> entry : expectedHashes.entrySet()) {
+            if (!entry.getValue().equals(hashes.get(entry.getKey()))) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
@@ -1,6 +1,7 @@
 package dev.ftb.app.install;
 
 import com.google.common.hash.HashCode;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import dev.ftb.app.AppMain;
 import dev.ftb.app.data.InstanceModifications;
 import dev.ftb.app.data.InstanceModifications.ModOverride;
@@ -17,7 +18,6 @@ import dev.ftb.app.pack.Instance;
 import dev.ftb.app.util.FileUtils;
 import net.covers1624.quack.gson.JsonUtils;
 import net.covers1624.quack.io.IOUtils;
-import net.covers1624.quack.util.MultiHasher;
 import net.covers1624.quack.util.MultiHasher.HashFunc;
 import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
 import org.apache.commons.compress.archivers.zip.ZipFile;
@@ -31,7 +31,9 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
 
@@ -42,6 +44,7 @@ import static net.covers1624.quack.util.SneakyUtils.nullCons;
 public class InstanceInstaller extends InstanceOperation {    
     private static final Logger LOGGER = LogManager.getLogger();
     private static final boolean DEBUG = Boolean.getBoolean("InstanceInstaller.debug");
+    private static final int VALIDATION_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors());
 
     // These folders are 'known' to be important in the installation process.
     private static final Set<String> KNOWN_IMPORTANT_FOLDERS = Set.of(
@@ -86,6 +89,14 @@ public class InstanceInstaller extends InstanceOperation {
      */
     private final List<InvalidFile> invalidFiles = new LinkedList<>();
 
+    /**
+     * Any files which could not be validated due to an IO error, and the error.
+     * <p>
+     * These files are also listed in {@link #invalidFiles}, so they will be replaced. Each error is
+     * logged as it happens, and listed again with the rest of the plan when debugging.
+     */
+    private final Map<Path, Throwable> validationErrors = new ConcurrentHashMap<>();
+
     /**
      * Any files which are in a known 'tracked' directory (mods, etc),
      * but are not a part of any manifest.
@@ -192,15 +203,17 @@ public class InstanceInstaller extends InstanceOperation {
      * Sets up internal state ready for the installation process.
      */
     public void prepare() {
-        tracker.nextStage(InstallStage.PREPARE);
         if (operationType == OperationType.VALIDATE) {
+            // Validation reports its own stage, the rest of the preparation follows it.
             validateFiles();
             String gameVersion = manifest.getTargetVersion("game");
             if (gameVersion != null && !instance.props.mcVersion.equals(gameVersion)) {
                 LOGGER.warn("Instance had invalid mcVersion attribute. Repairing..");
                 instance.props.mcVersion = gameVersion;
             }
-        } else if (operationType == OperationType.UPGRADE) {
+        }
+        tracker.nextStage(InstallStage.PREPARE);
+        if (operationType == OperationType.UPGRADE) {
             processUpgrade();
         }
         locateUntrackedFiles();
@@ -213,6 +226,11 @@ public class InstanceInstaller extends InstanceOperation {
                 LOGGER.info("  " + invalidFile);
             }
 
+            LOGGER.info("The following files could not be validated:");
+            for (Map.Entry<Path, Throwable> entry : validationErrors.entrySet()) {
+                LOGGER.info("  " + entry.getKey() + ": " + entry.getValue());
+            }
+
             LOGGER.info("Found the following untracked files:");
             for (Path untrackedFile : getUntrackedFiles()) {
                 LOGGER.info("  " + untrackedFile);
@@ -269,7 +287,7 @@ public class InstanceInstaller extends InstanceOperation {
             rootListener.start(totalSize);
             TaskProgressAggregator progressAggregator = new ParallelTaskProgressAggregator(rootListener);
 
-            ParallelTaskHelper.executeInParallel(cancelToken, Task.TASK_POOL, tasks, progressAggregator);
+            ParallelTaskHelper.executeInParallel(cancelToken, tasks, progressAggregator);
 
             rootListener.finish(progressAggregator.getProcessed());
 
@@ -331,6 +349,7 @@ public class InstanceInstaller extends InstanceOperation {
 
     private void validateFiles() {
         Map<String, IndexedFile> knownFiles = getKnownFiles();
+        Map<Path, IndexedFile> files = new LinkedHashMap<>();
         for (Map.Entry<String, IndexedFile> entry : knownFiles.entrySet()) {
             IndexedFile modpackFile = entry.getValue();
             Path file = remapFileFromOverride(
@@ -338,28 +357,94 @@ public class InstanceInstaller extends InstanceOperation {
                     instance.getDir().resolve(entry.getKey()),
                     nullCons()
             );
-            if (Files.notExists(file)) {
-                invalidFiles.add(new InvalidFile(file, modpackFile.sha1(), null, modpackFile.length(), -1));
-            } else {
-                try {
-                    FileValidation validation = modpackFile.createValidation();
-                    MultiHasher hasher = new MultiHasher(HashFunc.SHA1);
-                    hasher.load(file);
-                    MultiHasher.HashResult result = hasher.finish();
-                    if (!validation.validate(file, result)) {
-                        invalidFiles.add(new InvalidFile(
-                                file,
-                                modpackFile.sha1(),
-                                result.get(HashFunc.SHA1),
-                                modpackFile.length(),
-                                Files.size(file)
-                        ));
+            files.put(file, modpackFile);
+        }
+
+        tracker.nextStage(InstallStage.VALIDATE, files.size());
+        TaskProgressListener listener = tracker.listenerForStage();
+        listener.start(files.values().stream().mapToLong(e -> Math.max(0, e.length())).sum());
+        AtomicLong processed = new AtomicLong();
+
+        List<CompletableFuture<@Nullable InvalidFile>> futures = new ArrayList<>(files.size());
+        ThreadFactory threadFactory = new ThreadFactoryBuilder()
+                .setNameFormat("Validate Files %d")
+                .setDaemon(true)
+                .build();
+        try (ExecutorService executor = Executors.newFixedThreadPool(VALIDATION_THREADS, threadFactory)) {
+            for (Map.Entry<Path, IndexedFile> entry : files.entrySet()) {
+                futures.add(CompletableFuture.supplyAsync(() -> {
+                    cancelToken.throwIfCancelled();
+                    try {
+                        return validateFile(entry.getKey(), entry.getValue(), processed);
+                    } finally {
+                        tracker.stepFinished();
                     }
-                } catch (IOException ex) {
-                    throw new IllegalStateException("Failed to validate file '" + file + "'.", ex);
+                }, executor));
+            }
+
+            // Progress listeners are not thread safe, pump them from this thread.
+            CompletableFuture<Void> all = CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new));
+            while (!all.isDone()) {
+                try {
+                    all.get(100, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException | ExecutionException ignored) {
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    cancelToken.cancel();
+                    futures.forEach(e -> e.cancel(false));
+                    break;
                 }
+                listener.update(processed.get());
             }
         }
+        listener.finish(processed.get());
+
+        cancelToken.throwIfCancelled();
+        for (CompletableFuture<@Nullable InvalidFile> future : futures) {
+            InvalidFile invalidFile = future.join();
+            if (invalidFile != null) {
+                invalidFiles.add(invalidFile);
+            }
+        }
+        if (!validationErrors.isEmpty()) {
+            LOGGER.warn("{} files could not be validated and will be replaced.", validationErrors.size());
+        }
+    }
+
+    @Nullable
+    private InvalidFile validateFile(Path file, IndexedFile modpackFile, AtomicLong processed) {
+        long expectedLen = Math.max(0, modpackFile.length());
+        long hashed = 0;
+        try {
+            if (Files.notExists(file)) {
+                return new InvalidFile(file, modpackFile.sha1(), null, modpackFile.length(), -1);
+            }
+
+            long size = Files.size(file);
+            if (modpackFile.length() != -1 && size != modpackFile.length()) {
+                return new InvalidFile(file, modpackFile.sha1(), null, modpackFile.length(), size);
+            }
+            if (modpackFile.sha1() == null) return null;
+
+            LongAdder read = new LongAdder();
+            HashCode sha1 = FileHashCache.get().hash(file, List.of(HashFunc.SHA1), len -> {
+                read.add(len);
+                processed.addAndGet(len);
+            }).get(HashFunc.SHA1);
+            hashed = read.sum();
+            if (!modpackFile.sha1().equals(sha1)) {
+                return new InvalidFile(file, modpackFile.sha1(), sha1, modpackFile.length(), size);
+            }
+            return null;
+        } catch (IOException ex) {
+            // Don't abort the whole validation, treat the file as invalid so it gets replaced.
+            LOGGER.error("Failed to validate file '{}'.", file, ex);
+            validationErrors.put(file, ex);
+            return new InvalidFile(file, modpackFile.sha1(), null, modpackFile.length(), -1);
+        } finally {
+            // Account for anything we skipped, cache hits, mismatched sizes, etc.
+            processed.addAndGet(Math.max(0, expectedLen - hashed));
+        }
     }
 
     private void processUpgrade() {
@@ -548,6 +633,7 @@ public class InstanceInstaller extends InstanceOperation {
 
     public enum InstallStage implements OperationProgressTracker.Stage {
         PREPARE,
+        VALIDATE,
         MOD_LOADER,
         FILES,
     }
@@ -586,6 +672,11 @@ public class InstanceInstaller extends InstanceOperation {
             task.execute(cancelToken, listener);
             tracker.stepFinished();
         }
+
+        @Override
+        public @Nullable String schedulingKey() {
+            return task.schedulingKey();
+        }
     }
 
     private record EmptyFileDlTask(Path destination) implements Task {
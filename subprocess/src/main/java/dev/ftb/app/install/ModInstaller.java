@@ -214,7 +214,7 @@ public class ModInstaller implements ModCollector {
             TaskProgressListener listener = tracker.listenerForStage();
             listener.start(totalSize);
             TaskProgressAggregator aggregator = new ParallelTaskProgressAggregator(listener);
-            ParallelTaskHelper.executeInParallel(null, Task.TASK_POOL, tasks, aggregator);
+            ParallelTaskHelper.executeInParallel(null, tasks, aggregator);
 
             LOGGER.info("Finished downloading, Saving metadata changes.");
 
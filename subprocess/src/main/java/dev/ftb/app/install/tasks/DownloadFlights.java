@@ -0,0 +1,156 @@
+package dev.ftb.app.install.tasks;
+
+import com.google.common.hash.HashCode;
+import dev.ftb.app.pack.CancellationToken;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.util.concurrent.*;
+
+/**
+ * A process-wide single-flight registry for {@link DownloadTask}s.
+ * <p>
+ * Concurrent downloads of the same content to the same destination are collapsed into a single
+ * transfer. The first caller performs the download, later callers wait for it and mirror its progress.
+ * If the transfer fails, a waiting caller will attempt the download itself.
+ */
+final class DownloadFlights {
+
+    private static final DownloadFlights INSTANCE = new DownloadFlights();
+
+    private final ConcurrentMap<Key, Flight> flights = new ConcurrentHashMap<>();
+
+    static DownloadFlights get() {
+        return INSTANCE;
+    }
+
+    DownloadFlights() {
+    }
+
+    /**
+     * Run the given download, or join an identical one which is already in flight.
+     *
+     * @param dest     The destination file.
+     * @param sha1     The expected SHA1 of the file, if known.
+     * @param token    The cancellation token, checked whilst waiting on another transfer.
+     * @param listener The progress listener.
+     * @param download The download to run if nothing is in flight.
+     * @return {@code true} if this call performed the download, {@code false} if it joined another.
+     * @throws IOException If the download failed.
+     */
+    boolean run(Path dest, @Nullable HashCode sha1, @Nullable CancellationToken token, @Nullable TaskProgressListener listener, Download download) throws IOException {
+        Key key = new Key(dest.toAbsolutePath().normalize(), sha1);
+        while (true) {
+            Flight flight = new Flight();
+            Flight existing = flights.putIfAbsent(key, flight);
+            if (existing == null) {
+                flight.run(key, listener, download);
+                return true;
+            }
+            if (existing.await(token, listener)) return false;
+            // The other transfer failed, have a go ourselves.
+        }
+    }
+
+    interface Download {
+
+        void run(@Nullable TaskProgressListener listener) throws IOException;
+    }
+
+    private record Key(Path dest, @Nullable HashCode sha1) { }
+
+    private final class Flight implements TaskProgressListener {
+
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+        private volatile long total = -1;
+        private volatile long processed;
+        private volatile boolean finished;
+
+        @Nullable
+        private TaskProgressListener delegate;
+
+        void run(Key key, @Nullable TaskProgressListener listener, Download download) throws IOException {
+            delegate = listener;
+            Throwable failure = null;
+            try {
+                download.run(listener != null ? this : null);
+            } catch (Throwable ex) {
+                failure = ex;
+                throw ex;
+            } finally {
+                // Remove before completing, so nobody can join a flight which has already failed.
+                flights.remove(key, this);
+                if (failure == null) {
+                    future.complete(null);
+                } else {
+                    future.completeExceptionally(failure);
+                }
+            }
+        }
+
+        /**
+         * Wait for this flight to finish, mirroring its progress to the given listener.
+         * <p>
+         * Progress listeners are not necessarily thread safe, so they are pumped from the waiting thread.
+         *
+         * @return {@code true} if the flight succeeded.
+         */
+        boolean await(@Nullable CancellationToken token, @Nullable TaskProgressListener listener) throws IOException {
+            long lastTotal = -1;
+            while (true) {
+                if (token != null) {
+                    token.throwIfCancelled();
+                }
+                boolean done = false;
+                try {
+                    future.get(100, TimeUnit.MILLISECONDS);
+                    done = true;
+                } catch (TimeoutException ignored) {
+                } catch (ExecutionException ex) {
+                    return false;
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted whilst waiting on in-flight download.");
+                }
+                if (listener != null) {
+                    long total = this.total;
+                    if (total != lastTotal) {
+                        lastTotal = total;
+                        listener.start(total);
+                    }
+                    if (done) {
+                        listener.finish(finished ? processed : total);
+                    } else {
+                        listener.update(processed);
+                    }
+                }
+                if (done) return true;
+            }
+        }
+
+        @Override
+        public void start(long total) {
+            this.total = total;
+            processed = 0;
+            assert delegate != null;
+            delegate.start(total);
+        }
+
+        @Override
+        public void update(long processed) {
+            this.processed = processed;
+            assert delegate != null;
+            delegate.update(processed);
+        }
+
+        @Override
+        public void finish(long total) {
+            processed = total;
+            finished = true;
+            assert delegate != null;
+            delegate.finish(total);
+        }
+    }
+}
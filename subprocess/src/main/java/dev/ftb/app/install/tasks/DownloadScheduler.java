@@ -0,0 +1,248 @@
+package dev.ftb.app.install.tasks;
+
+import dev.ftb.app.storage.settings.Settings;
+import dev.ftb.app.util.ExecutorUtils;
+import net.covers1624.quack.net.HttpResponseException;
+import okhttp3.internal.http2.StreamResetException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jspecify.annotations.Nullable;
+
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+/**
+ * Schedules download {@link Task}s with a concurrency limit per host.
+ * <p>
+ * The total number of running tasks is bounded by {@link Settings#getThreadLimit()}, read
+ * on every dispatch so setting changes apply immediately. Within that, each host has its own
+ * limit which is adjusted AIMD-style. Successful transfers additively grow the limit, as long
+ * as throughput keeps improving with the extra connections. Throttling responses, resets and
+ * timeouts halve it. Hosts with queued work are serviced round-robin.
+ * <p>
+ * Tasks without a {@link Task#schedulingKey()} are only bound by the global limit.
+ * <p>
+ * Admitted tasks each run on their own virtual thread, the scheduler's admission
+ * control is what bounds concurrency. Platform threads can be forced with
+ * {@link ExecutorUtils#PLATFORM_THREADS}.
+ */
+public class DownloadScheduler {
+
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final boolean DEBUG = Boolean.getBoolean("DownloadScheduler.debug");
+
+    private static final double INITIAL_HOST_LIMIT = 4;
+    private static final double MIN_HOST_LIMIT = 1;
+    private static final double DECREASE_FACTOR = 0.5;
+    // Many in-flight requests tend to fail at once, only back off once per window.
+    private static final long DECREASE_COOLDOWN = TimeUnit.SECONDS.toNanos(2);
+    private static final long THROUGHPUT_WINDOW = TimeUnit.SECONDS.toNanos(1);
+    // If adding connections did not gain us this much throughput, stop adding them for a while.
+    private static final double MIN_THROUGHPUT_GAIN = 1.05;
+    private static final long PLATEAU_HOLD = TimeUnit.SECONDS.toNanos(30);
+
+    private static final DownloadScheduler INSTANCE = new DownloadScheduler(
+            ExecutorUtils.newIoExecutor("Download Worker"),
+            () -> Math.max(1, Settings.getThreadLimit())
+    );
+
+    private final ExecutorService executor;
+    private final IntSupplier globalLimit;
+
+    private final Object lock = new Object();
+    private final Map<String, HostState> hosts = new HashMap<>();
+    private final ArrayDeque<HostState> pendingHosts = new ArrayDeque<>();
+    private final HostState unkeyed = new HostState("<none>", Double.MAX_VALUE);
+    private int running;
+
+    public static DownloadScheduler get() {
+        return INSTANCE;
+    }
+
+    DownloadScheduler(ExecutorService executor, IntSupplier globalLimit) {
+        this.executor = executor;
+        this.globalLimit = globalLimit;
+    }
+
+    /**
+     * Submit a job to the scheduler.
+     *
+     * @param key    The host this job will talk to, or {@code null} if unknown.
+     * @param action The job.
+     * @return A future completed once the job has run. Cancelling the future before
+     * the job has started will prevent it from running.
+     */
+    public CompletableFuture<Void> submit(@Nullable String key, Runnable action) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        synchronized (lock) {
+            HostState host = key == null ? unkeyed : getHost(key);
+            host.queue.add(new Job(future, action));
+            if (!host.pending) {
+                host.pending = true;
+                pendingHosts.add(host);
+            }
+            dispatch();
+        }
+        return future;
+    }
+
+    /**
+     * Report a successful transfer from the given host.
+     *
+     * @param key   The host.
+     * @param bytes The number of bytes transferred.
+     */
+    public void onSuccess(String key, long bytes) {
+        synchronized (lock) {
+            getHost(key).onSuccess(bytes, System.nanoTime(), globalLimit.getAsInt());
+            dispatch();
+        }
+    }
+
+    /**
+     * Report a failed transfer from the given host.
+     * <p>
+     * Only failures which indicate the host is overloaded affect its limit.
+     *
+     * @param key The host.
+     * @param ex  The failure.
+     */
+    public void onFailure(String key, Throwable ex) {
+        if (!isCongestionFailure(ex)) return;
+        synchronized (lock) {
+            getHost(key).onCongestion(System.nanoTime());
+        }
+    }
+
+    private HostState getHost(String key) {
+        return hosts.computeIfAbsent(key, e -> new HostState(e, INITIAL_HOST_LIMIT));
+    }
+
+    // Must hold lock.
+    private void dispatch() {
+        int globalLimit = this.globalLimit.getAsInt();
+        int skipped = 0;
+        while (running < globalLimit && !pendingHosts.isEmpty() && skipped < pendingHosts.size()) {
+            HostState host = pendingHosts.poll();
+            if (host.inFlight >= host.effectiveLimit()) {
+                pendingHosts.add(host);
+                skipped++;
+                continue;
+            }
+            skipped = 0;
+
+            Job job = host.queue.poll();
+            if (!host.queue.isEmpty()) {
+                pendingHosts.add(host);
+            } else {
+                host.pending = false;
+            }
+            if (job == null || job.future.isDone()) continue; // Cancelled before it started.
+
+            host.inFlight++;
+            running++;
+            executor.execute(() -> {
+                try {
+                    job.action.run();
+                    job.future.complete(null);
+                } catch (Throwable ex) {
+                    job.future.completeExceptionally(ex);
+                } finally {
+                    onFinished(host);
+                }
+            });
+        }
+    }
+
+    private void onFinished(HostState host) {
+        synchronized (lock) {
+            host.inFlight--;
+            running--;
+            dispatch();
+        }
+    }
+
+    private static boolean isCongestionFailure(Throwable ex) {
+        for (Throwable t = ex; t != null; t = t.getCause()) {
+            if (t instanceof HttpResponseException httpEx) {
+                int code = httpEx.code;
+                return code == 429 || code == 502 || code == 503 || code == 504;
+            }
+            if (t instanceof SocketTimeoutException
+                    || t instanceof ConnectException
+                    || t instanceof SocketException
+                    || t instanceof StreamResetException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private record Job(CompletableFuture<Void> future, Runnable action) { }
+
+    private static class HostState {
+
+        private final String name;
+        private final ArrayDeque<Job> queue = new ArrayDeque<>();
+        private boolean pending;
+        private int inFlight;
+
+        private double limit;
+        private long lastDecrease;
+        private long holdUntil;
+
+        private long windowStart = System.nanoTime();
+        private long windowBytes;
+        private int windowLimit;
+        private double lastThroughput;
+
+        HostState(String name, double limit) {
+            this.name = name;
+            this.limit = limit;
+            lastDecrease = windowStart - DECREASE_COOLDOWN;
+            holdUntil = windowStart;
+            windowLimit = (int) Math.min(limit, Integer.MAX_VALUE);
+        }
+
+        int effectiveLimit() {
+            return (int) Math.min(limit, Integer.MAX_VALUE);
+        }
+
+        void onSuccess(long bytes, long now, int globalLimit) {
+            windowBytes += bytes;
+            if (now - windowStart >= THROUGHPUT_WINDOW) {
+                double throughput = windowBytes * (double) TimeUnit.SECONDS.toNanos(1) / (now - windowStart);
+                if (effectiveLimit() > windowLimit && throughput < lastThroughput * MIN_THROUGHPUT_GAIN) {
+                    // More connections did not help, we have likely saturated either the link or the host.
+                    holdUntil = now + PLATEAU_HOLD;
+                    if (DEBUG) {
+                        LOGGER.info("Host {} plateaued at {} connections, {} B/s.", name, windowLimit, (long) throughput);
+                    }
+                }
+                lastThroughput = throughput;
+                windowLimit = effectiveLimit();
+                windowStart = now;
+                windowBytes = 0;
+            }
+
+            if (now - holdUntil >= 0 && limit < globalLimit) {
+                limit = Math.min(globalLimit, limit + 1 / limit);
+            }
+        }
+
+        void onCongestion(long now) {
+            if (now - lastDecrease < DECREASE_COOLDOWN) return;
+            lastDecrease = now;
+            limit = Math.max(MIN_HOST_LIMIT, limit * DECREASE_FACTOR);
+            LOGGER.info("Host {} appears congested, reducing concurrency to {}.", name, effectiveLimit());
+        }
+    }
+}
@@ -5,6 +5,7 @@ import com.google.common.hash.HashFunction;
 import dev.ftb.app.Constants;
 import dev.ftb.app.install.FileValidation;
 import dev.ftb.app.pack.CancellationToken;
+import dev.ftb.app.util.ExecutorUtils;
 import dev.ftb.app.util.SSLUtils;
 import dev.ftb.app.util.X509Formatter;
 import net.covers1624.quack.io.IOUtils;
@@ -13,6 +14,8 @@ import net.covers1624.quack.util.MultiHasher;
 import net.covers1624.quack.util.MultiHasher.HashFunc;
 import net.covers1624.quack.util.MultiHasher.HashResult;
 import net.covers1624.quack.util.TimeUtils;
+import okhttp3.Call;
+import okhttp3.HttpUrl;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
@@ -26,6 +29,8 @@ import org.jspecify.annotations.Nullable;
 
 import javax.net.ssl.SSLException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -34,6 +39,10 @@ import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.FileTime;
 import java.security.cert.X509Certificate;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 import static java.net.HttpURLConnection.HTTP_NOT_MODIFIED;
 import static java.net.HttpURLConnection.HTTP_PARTIAL;
@@ -48,6 +57,14 @@ public class DownloadTask implements Task {
 
     private static final int DEFAULT_NUM_TRIES = 3;
 
+    // Files at least this large are downloaded in parallel segments, if the server supports ranges.
+    private static final long SEGMENT_THRESHOLD = 16L * 1024 * 1024;
+    private static final long MIN_SEGMENT_SIZE = 4L * 1024 * 1024;
+    private static final int MAX_SEGMENTS = Integer.getInteger("DownloadTask.segments", 4);
+    private static final ExecutorService SEGMENT_EXECUTOR = ExecutorUtils.newIoExecutor("Download Segment");
+    // Files at least this large race their first two mirrors to pick the fastest.
+    private static final long RACE_THRESHOLD = 4L * 1024 * 1024;
+
     private final int tries;
     private final List<String> urls;
     private final Path dest;
@@ -91,11 +108,18 @@ public class DownloadTask implements Task {
             return;
         }
 
+        HashCode sha1 = validation.expectedHashes.get(HashFunc.SHA1);
+        if (!DownloadFlights.get().run(dest, sha1, token, progressListener, this::download)) {
+            LOGGER.info(" Joined in-flight download of {}.", dest);
+        }
+    }
+
+    private void download(@Nullable TaskProgressListener progressListener) throws IOException {
         if (fileLocator != null) {
             Path localPath = fileLocator.getLocalFile(validation, dest);
             if (localPath != null && Files.exists(localPath)) {
                 LOGGER.info(" File existed locally.");
-                Files.copy(localPath, IOUtils.makeParents(dest), StandardCopyOption.REPLACE_EXISTING);
+                fileLocator.materialize(localPath, dest);
                 if (progressListener != null) {
                     long len = Files.size(dest);
                     progressListener.start(len);
@@ -105,6 +129,12 @@ public class DownloadTask implements Task {
             }
         }
 
+        DownloadScheduler scheduler = DownloadScheduler.get();
+        MirrorHealth mirrorHealth = MirrorHealth.get();
+        List<String> urls = mirrorHealth.order(this.urls);
+        if (urls.size() > 1 && validation.expectedSize >= RACE_THRESHOLD) {
+            urls = mirrorHealth.race(urls, Constants.httpClient(), DownloadTask::newRequest);
+        }
         boolean success = false;
         List<FailedDownloadAttempt> downloadAttempts = new LinkedList<>();
         outer:
@@ -124,25 +154,50 @@ public class DownloadTask implements Task {
                 }
             }
 
+            String host = hostOf(url);
+            if (canSegment()) {
+                try {
+                    // Reports its own requests to the scheduler, per segment.
+                    if (doSegmentedRequest(url, host, progressListener) != -1) {
+                        success = true;
+                        break outer;
+                    }
+                } catch (Throwable ex) {
+                    LOGGER.warn("Segmented download failed, falling back to a single connection. URL {}.", url, ex);
+                    downloadAttempts.add(new FailedDownloadAttempt(url, urlIdx, -1, ex, SSLUtils.getThreadCertificates()));
+                }
+            }
             for (int i = 0; i < tries; i++) {
                 try {
-                    doRequest(url, Constants.httpClient(), dest, validation, progressListener);
+                    long bytes = doRequest(url, Constants.httpClient(), dest, validation, progressListener);
+                    if (host != null) scheduler.onSuccess(host, bytes);
                     success = true;
                     break outer;
                 } catch (Throwable ex) {
+                    reportFailure(host, ex);
                     LOGGER.debug("HTTP/2, Download attempt failed. Attempt {}, URL {}.", i, url, ex);
                     downloadAttempts.add(new FailedDownloadAttempt(url, urlIdx, i, ex, SSLUtils.getThreadCertificates()));
+                    if (urlIdx < urls.size() - 1 && mirrorHealth.isUnhealthy(url)) {
+                        LOGGER.warn("Mirror {} is unhealthy, skipping to next mirror.", url);
+                        continue outer;
+                    }
                 }
             }
             LOGGER.warn("Download failed 3 times. Trying HTTP/1.1");
             for (int i = 0; i < tries; i++) {
                 try {
-                    doRequest(url, Constants.http1Client(), dest, validation, progressListener);
+                    long bytes = doRequest(url, Constants.http1Client(), dest, validation, progressListener);
+                    if (host != null) scheduler.onSuccess(host, bytes);
                     success = true;
                     break outer;
                 } catch (Throwable ex) {
+                    reportFailure(host, ex);
                     LOGGER.debug("HTTP/1.1 Download attempt failed. Attempt {}, URL {}.", i, url, ex);
                     downloadAttempts.add(new FailedDownloadAttempt(url, urlIdx, i, ex, SSLUtils.getThreadCertificates()));
+                    if (urlIdx < urls.size() - 1 && mirrorHealth.isUnhealthy(url)) {
+                        LOGGER.warn("Mirror {} is unhealthy, skipping to next mirror.", url);
+                        continue outer;
+                    }
                 }
             }
         }
@@ -171,6 +226,12 @@ public class DownloadTask implements Task {
         }
     }
 
+    private static void reportFailure(@Nullable String host, Throwable ex) {
+        if (host == null) return;
+        DownloadScheduler.get().onFailure(host, ex);
+        MirrorHealth.get().onFailure(host, ex);
+    }
+
     @Nullable
     private HashCode tryGetCompanionHash(String url, HashFunc func) throws IOException {
         String ext = "." + func.getName().toLowerCase(Locale.ROOT);
@@ -198,7 +259,12 @@ public class DownloadTask implements Task {
         return HashCode.fromString(Files.readString(dest, StandardCharsets.UTF_8).trim());
     }
 
-    private void doRequest(String url, OkHttpClient httpClient, Path path, DownloadValidation validation, @Nullable TaskProgressListener progressListener) throws IOException {
+    /**
+     * Perform the request, resuming if possible.
+     *
+     * @return The number of bytes transferred over the network.
+     */
+    private long doRequest(String url, OkHttpClient httpClient, Path path, DownloadValidation validation, @Nullable TaskProgressListener progressListener) throws IOException {
         Path tempFile = path.resolveSibling("__tmp_" + path.getFileName());
         Path eTagFile = path.resolveSibling(path.getFileName() + ".etag");
 
@@ -206,6 +272,8 @@ public class DownloadTask implements Task {
         boolean readAnyBytes = false;
         int tries = 0;
         List<Throwable> downloadFailures = null;
+        Map<HashFunc, HashCode> hashes = null;
+        long transferred = 0;
         while (tries++ == 0 || !success && readAnyBytes && tries < 10) {
             readAnyBytes = false;
             LOGGER.info("Trying to download from {}..", url);
@@ -214,14 +282,8 @@ public class DownloadTask implements Task {
             }
 
             LOGGER.info("  Downloading url: {}", url);
-            Request.Builder builder = new Request.Builder()
-                    .url(url)
-                    .addHeader("User-Agent", Constants.USER_AGENT);
+            Request.Builder builder = newRequest(url);
 
-            if (url.startsWith("https://edge.forgecdn.net/files")) {
-                builder.addHeader("x-api-key", Constants.curseForgeApiKey());
-            }
-            
             if (validation.useETag && Files.exists(eTagFile)) {
                 try {
                     builder.addHeader("If-None-Match", Files.readString(eTagFile));
@@ -248,7 +310,12 @@ public class DownloadTask implements Task {
                 LOGGER.info("Connecting to {}.", url);
             }
 
+            long start = System.nanoTime();
             try (Response response = httpClient.newCall(builder.build()).execute()) {
+                String host = hostOf(url);
+                if (host != null) {
+                    MirrorHealth.get().onResponse(host, System.nanoTime() - start);
+                }
                 int code = response.code();
                 validation.validateResponseCode(code, response.message());
 
@@ -256,7 +323,7 @@ public class DownloadTask implements Task {
                 if (validation.validateNotModified(url, code, lastModified, lastModifiedHeader)) {
                     LOGGER.info("  File passed ETag/OnlyIfModified checks.");
                     // We validated ETag/OnlyIfModified
-                    return;
+                    return transferred;
                 }
 
                 ResponseBody body = response.body();
@@ -290,16 +357,29 @@ public class DownloadTask implements Task {
                 boolean deleteFile = false;
                 try (Source source = s) {
                     Path output = IOUtils.makeParents(tempFile);
+                    // Hash the bytes as they pass through, resumed downloads are seeded from what we already have on disk.
+                    InlineHasher hasher = validation.expectedHashes.isEmpty() ? null : InlineHasher.create(validation.expectedHashes.keySet());
+                    if (hasher != null && isPartial) {
+                        hasher.seed(output);
+                    }
                     try (BufferedSink sink = Okio.buffer(isPartial ? Okio.sink(output, StandardOpenOption.WRITE, StandardOpenOption.APPEND) : Okio.sink(output))) {
                         long read;
                         while (true) {
                             read = source.read(sink.getBuffer(), 8192);
                             readAnyBytes = true;
                             if (read == -1) break;
+                            transferred += read;
+                            if (hasher != null) {
+                                Buffer buffer = sink.getBuffer();
+                                buffer.copyTo(hasher, buffer.size() - read, read);
+                            }
                             sink.emitCompleteSegments();
                         }
                         success = true;
                     }
+                    if (hasher != null) {
+                        hashes = hasher.finish();
+                    }
                 } catch (IOException ex) {
                     // If we aren't in resume mode, or we tried to resume and did not get 206 partial. Just bonk out.
                     if (!tryResumeDownload || !isPartial && tries > 1) {
@@ -351,43 +431,294 @@ public class DownloadTask implements Task {
             throw ex;
         }
 
-        validateDownload(url, path, validation);
+        if (hashes == null && !validation.expectedHashes.isEmpty()) {
+            // One of the expected hash functions can't be computed inline, read the file back.
+            hashes = hash(path, validation);
+        }
+        validateDownload(url, path, validation, hashes);
+        return transferred;
     }
 
-    private static void validateDownload(String url, Path dest, DownloadValidation validation) throws IOException {
-        HashResult result = hash(dest, validation);
-        if (!validation.validate(dest, result)) {
-            StringBuilder reason = new StringBuilder();
-            // Validate will return false when both expectedSize and expectedHash are missing.
-            if (validation.expectedSize != -1) {
-                long size = Files.size(dest);
-                if (validation.expectedSize != size) {
-                    reason.append("Expected size: ").append(validation.expectedSize).append(" Got: ").append(size);
+    private boolean canSegment() {
+        return MAX_SEGMENTS > 1
+                && validation.expectedSize >= SEGMENT_THRESHOLD
+                && !validation.expectedHashes.isEmpty()
+                && !validation.expectNotModified();
+    }
+
+    /**
+     * Download the file as multiple byte ranges in parallel, each over its own connection.
+     * <p>
+     * Segments are written with positional writes into a preallocated temp file. The assembled
+     * file is validated against the expected size and hashes before being moved into place.
+     * <p>
+     * This task's own scheduler slot works through the segments in order. Every segment after the
+     * first is also submitted to the {@link DownloadScheduler} for the host, and runs in parallel
+     * only once the scheduler admits it, whichever side gets to a segment first runs it. A segmented
+     * download therefore never holds more connections than the host's limit allows, and never waits
+     * on the scheduler to make progress. The range probe runs on this task's own slot. Every request
+     * is reported to the scheduler individually.
+     *
+     * @return The number of bytes transferred, or {@code -1} if the server does not support range requests.
+     */
+    private long doSegmentedRequest(String url, @Nullable String host, @Nullable TaskProgressListener progressListener) throws Throwable {
+        // HTTP/2 would multiplex all segments over a single TCP connection, which defeats the point.
+        OkHttpClient httpClient = Constants.http1Client();
+        long size = validation.expectedSize;
+        try {
+            if (!supportsRanges(url, httpClient, size)) return -1;
+        } catch (IOException ex) {
+            reportFailure(host, ex);
+            throw ex;
+        }
+
+        int count = (int) Math.min(MAX_SEGMENTS, size / MIN_SEGMENT_SIZE);
+        long segmentSize = (size + count - 1) / count;
+        LOGGER.info("  Downloading {} in {} segments.", url, count);
+
+        List<Segment> segments = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long start = i * segmentSize;
+            segments.add(new Segment(start, Math.min(size, start + segmentSize) - 1));
+        }
+
+        DownloadScheduler scheduler = DownloadScheduler.get();
+        Path tempFile = dest.resolveSibling("__tmp_seg_" + dest.getFileName());
+        AtomicLong progress = new AtomicLong();
+        AtomicBoolean failed = new AtomicBoolean();
+        Set<Call> calls = ConcurrentHashMap.newKeySet();
+        if (progressListener != null) {
+            progressListener.start(size);
+        }
+        try {
+            try (FileChannel channel = FileChannel.open(IOUtils.makeParents(tempFile), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                // Preallocate.
+                channel.write(ByteBuffer.allocate(1), size - 1);
+
+                Consumer<Segment> runSegment = segment -> {
+                    if (!segment.claimed.compareAndSet(false, true)) return;
+                    if (failed.get()) {
+                        segment.done.complete(null);
+                        return;
+                    }
+                    try {
+                        fetchSegment(url, host, httpClient, channel, segment.start, segment.end, progress, failed, calls);
+                        if (host != null) scheduler.onSuccess(host, segment.end - segment.start + 1);
+                        segment.done.complete(null);
+                    } catch (Throwable ex) {
+                        failed.set(true);
+                        segment.done.completeExceptionally(ex);
+                    }
+                };
+
+                List<CompletableFuture<Void>> jobs = new ArrayList<>(count - 1);
+                boolean success = false;
+                try {
+                    for (Segment segment : segments.subList(1, count)) {
+                        jobs.add(scheduler.submit(host, () -> runSegment.accept(segment)));
+                    }
+                    SEGMENT_EXECUTOR.execute(() -> segments.forEach(runSegment));
+
+                    // Progress listeners are not necessarily thread safe, pump them from this thread.
+                    CompletableFuture<Void> all = CompletableFuture.allOf(segments.stream().map(e -> e.done).toArray(CompletableFuture[]::new));
+                    while (true) {
+                        try {
+                            all.get(100, TimeUnit.MILLISECONDS);
+                            break;
+                        } catch (TimeoutException ignored) {
+                        } catch (ExecutionException ex) {
+                            throw ex.getCause();
+                        } finally {
+                            if (progressListener != null) {
+                                progressListener.update(progress.get());
+                            }
+                        }
+                        if (failed.get()) {
+                            // Don't wait for segments still queued in the scheduler, fail with the first error.
+                            for (Segment segment : segments) {
+                                if (segment.done.isCompletedExceptionally()) {
+                                    try {
+                                        segment.done.join();
+                                    } catch (CompletionException ex) {
+                                        throw ex.getCause();
+                                    }
+                                }
+                            }
+                        }
+                    }
+                    success = true;
+                } finally {
+                    if (!success) {
+                        // Stop the other segments, and wait for them to stop writing before the temp file is deleted.
+                        failed.set(true);
+                        jobs.forEach(e -> e.cancel(false));
+                        calls.forEach(Call::cancel);
+                        for (Segment segment : segments) {
+                            if (segment.claimed.compareAndSet(false, true)) {
+                                segment.done.complete(null);
+                            }
+                        }
+                        CompletableFuture.allOf(segments.stream().map(e -> e.done.exceptionally(ex -> null)).toArray(CompletableFuture[]::new)).join();
+                    }
                 }
             }
-            if (!validation.expectedHashes.isEmpty() && result != null) {
-                for (Map.Entry<HashFunc, HashCode> entry : validation.expectedHashes.entrySet()) {
-                    HashCode got = result.get(entry.getKey());
-                    if (!entry.getValue().equals(got)) {
-                        if (reason.length() > 0) {
-                            reason.append(", ");
-                        }
-                        reason.append("Expected ").append(entry.getKey().getName()).append(" hash: ").append(entry.getValue()).append(" Got: ").append(got);
+            if (progressListener != null) {
+                progressListener.finish(size);
+            }
+
+            // Validate before replacing anything which may already be at dest.
+            try {
+                validateDownload(url, tempFile, validation, hash(tempFile, validation));
+            } catch (Throwable ex) {
+                reportFailure(host, ex);
+                throw ex;
+            }
+            Files.move(tempFile, dest, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+        return size;
+    }
+
+    private static boolean supportsRanges(String url, OkHttpClient httpClient, long expectedSize) throws IOException {
+        try (Response response = httpClient.newCall(newRequest(url).head().build()).execute()) {
+            if (!response.isSuccessful()) return false;
+            if (!"bytes".equalsIgnoreCase(response.header("Accept-Ranges"))) return false;
+
+            // If the server disagrees on the size, something is off. Let the regular path deal with it.
+            long length = NumberUtils.toLong(response.header("Content-Length"), -1);
+            return length == expectedSize;
+        }
+    }
+
+    private void fetchSegment(String url, @Nullable String host, OkHttpClient httpClient, FileChannel channel, long start, long end, AtomicLong progress, AtomicBoolean failed, Set<Call> calls) throws IOException {
+        long pos = start;
+        IOException failure = null;
+        for (int i = 0; i < tries && pos <= end && !failed.get(); i++) {
+            Request request = newRequest(url)
+                    .header("Range", "bytes=" + pos + "-" + end)
+                    .build();
+            Call call = httpClient.newCall(request);
+            calls.add(call);
+            try (Response response = call.execute()) {
+                if (response.code() != HTTP_PARTIAL) {
+                    throw new HttpResponseException(response.code(), response.message());
+                }
+                ResponseBody body = response.body();
+                if (body == null) {
+                    throw new IOException("Got empty response body??");
+                }
+
+                BufferedSource source = body.source();
+                ByteBuffer buf = ByteBuffer.allocate(64 * 1024);
+                while (pos <= end && !failed.get()) {
+                    buf.clear();
+                    buf.limit((int) Math.min(buf.capacity(), end - pos + 1));
+                    int read = source.read(buf);
+                    if (read == -1) break;
+                    buf.flip();
+                    while (buf.hasRemaining()) {
+                        pos += channel.write(buf, pos);
                     }
+                    progress.addAndGet(read);
                 }
+                if (pos <= end && !failed.get()) {
+                    throw new IOException("Segment " + start + "-" + end + " ended early at " + pos + ".");
+                }
+            } catch (IOException ex) {
+                LOGGER.debug("Segment download attempt failed. Attempt {}, Range {}-{}, URL {}.", i, pos, end, url, ex);
+                // Cancelled calls are our own doing, not the host's.
+                if (!failed.get()) {
+                    reportFailure(host, ex);
+                }
+                if (failure == null) {
+                    failure = ex;
+                } else {
+                    failure.addSuppressed(ex);
+                }
+            } finally {
+                calls.remove(call);
             }
-            throw new IOException("Downloaded file '" + url + "'(" + dest + ") failed validation. " + reason);
+        }
+        if (pos <= end) {
+            throw failure != null ? failure : new IOException("Segment " + start + "-" + end + " aborted.");
         }
     }
 
-    @Nullable
-    @Deprecated // Might be redundant now, can probably go back to using the interceptor.
-    private static HashResult hash(Path dest, DownloadValidation validation) throws IOException {
-        if (validation.expectedHashes.isEmpty()) return null;
+    /**
+     * A byte range of a segmented download, run by whichever of the owning task or the scheduler claims it first.
+     */
+    private static final class Segment {
+
+        private final long start;
+        private final long end;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        // Completed once the segment has been written, failed, or skipped, and nothing is writing it any more.
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        Segment(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    private static Request.Builder newRequest(String url) {
+        Request.Builder builder = new Request.Builder()
+                .url(url)
+                .addHeader("User-Agent", Constants.USER_AGENT);
 
+        if (url.startsWith("https://edge.forgecdn.net/files")) {
+            builder.addHeader("x-api-key", Constants.curseForgeApiKey());
+        }
+        return builder;
+    }
+
+    private static void validateDownload(String url, Path dest, DownloadValidation validation, @Nullable Map<HashFunc, HashCode> hashes) throws IOException {
+        StringBuilder reason = new StringBuilder();
+        if (validation.expectedSize != -1) {
+            long size = Files.size(dest);
+            if (validation.expectedSize != size) {
+                reason.append("Expected size: ").append(validation.expectedSize).append(" Got: ").append(size);
+            }
+        }
+        if (hashes != null) {
+            for (Map.Entry<HashFunc, HashCode> entry : validation.expectedHashes.entrySet()) {
+                HashCode got = hashes.get(entry.getKey());
+                if (!entry.getValue().equals(got)) {
+                    if (reason.length() > 0) {
+                        reason.append(", ");
+                    }
+                    reason.append("Expected ").append(entry.getKey().getName()).append(" hash: ").append(entry.getValue()).append(" Got: ").append(got);
+                }
+            }
+        }
+        if (reason.length() > 0) {
+            throw new IOException("Downloaded file '" + url + "'(" + dest + ") failed validation. " + reason);
+        }
+    }
+
+    private static Map<HashFunc, HashCode> hash(Path dest, DownloadValidation validation) throws IOException {
         MultiHasher hasher = new MultiHasher(validation.expectedHashes.keySet());
         hasher.load(dest);
-        return hasher.finish();
+        HashResult result = hasher.finish();
+
+        Map<HashFunc, HashCode> hashes = new HashMap<>();
+        for (HashFunc func : validation.expectedHashes.keySet()) {
+            hashes.put(func, result.get(func));
+        }
+        return hashes;
+    }
+
+    @Nullable
+    @Override
+    public String schedulingKey() {
+        return hostOf(MirrorHealth.get().order(urls).get(0));
+    }
+
+    @Nullable
+    static String hostOf(String url) {
+        HttpUrl httpUrl = HttpUrl.parse(url);
+        return httpUrl != null ? httpUrl.host() : null;
     }
 
     /**
@@ -518,6 +849,17 @@ public class DownloadTask implements Task {
         @Nullable
         Path getLocalFile(FileValidation validation, Path dest);
 
+        /**
+         * Materialize a file previously returned by {@link #getLocalFile} at its destination.
+         *
+         * @param localFile The local file.
+         * @param dest      The destination.
+         * @throws IOException If an IO error occurs.
+         */
+        default void materialize(Path localFile, Path dest) throws IOException {
+            Files.copy(localFile, IOUtils.makeParents(dest), StandardCopyOption.REPLACE_EXISTING);
+        }
+
         void onFileDownloaded(FileValidation validation, Path dest);
     }
 
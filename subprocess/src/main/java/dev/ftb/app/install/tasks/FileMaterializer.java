@@ -0,0 +1,159 @@
+package dev.ftb.app.install.tasks;
+
+import dev.ftb.app.os.Reflink;
+import net.covers1624.quack.io.IOUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Materializes files from one location to another as cheaply as the
+ * underlying filesystem allows.
+ * <p>
+ * Strategies are tried in order of {@link Strategy}, a reflink clone, then a hard link,
+ * then finally a plain {@link FileChannel#transferTo} copy. The first strategy
+ * to work for a given pair of filesystems is remembered, failing strategies
+ * are skipped for that pair from then on.
+ * <p>
+ * Hard links share the file with its source, so an in-place edit to either shows up in
+ * both. They must only be allowed when neither side is ever modified in place. Files in
+ * instances, such as configs, are edited by users and mods, so anything materialized into
+ * an instance must not use hard links. Reflinks are copy-on-write and always safe.
+ */
+public class FileMaterializer {
+
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    private final Map<StoreKey, State> states = new ConcurrentHashMap<>();
+    private final boolean allowHardLinks;
+
+    /**
+     * @param allowHardLinks If {@link Strategy#HARDLINK} may be used.
+     */
+    public FileMaterializer(boolean allowHardLinks) {
+        this.allowHardLinks = allowHardLinks;
+    }
+
+    /**
+     * Materialize {@code from} at {@code to}, replacing any existing file.
+     *
+     * @param from The source file.
+     * @param to   The destination file.
+     * @return The {@link Strategy} which was used.
+     * @throws IOException If all strategies failed.
+     */
+    public Strategy materialize(Path from, Path to) throws IOException {
+        IOUtils.makeParents(to);
+        Path tempFile = to.resolveSibling("__tmp_" + to.getFileName());
+        Files.deleteIfExists(tempFile);
+
+        State state = states.computeIfAbsent(storeKey(from, to), key -> new State(key, allowHardLinks));
+        Strategy strategy = state.strategy;
+        while (true) {
+            try {
+                strategy.apply(from, tempFile);
+                Files.move(tempFile, to, StandardCopyOption.REPLACE_EXISTING);
+                state.confirm(strategy);
+                return strategy;
+            } catch (IOException | UnsupportedOperationException ex) {
+                Files.deleteIfExists(tempFile);
+                if (strategy == Strategy.COPY) {
+                    throw ex;
+                }
+                Strategy next = Strategy.values()[strategy.ordinal() + 1];
+                if (next == Strategy.HARDLINK && !allowHardLinks) {
+                    next = Strategy.COPY;
+                }
+                state.fail(strategy, next, ex);
+                strategy = next;
+            }
+        }
+    }
+
+    private static StoreKey storeKey(Path from, Path to) throws IOException {
+        Object a = storeOf(from.toAbsolutePath().getParent());
+        Object b = storeOf(to.toAbsolutePath().getParent());
+        return new StoreKey(a, b);
+    }
+
+    private static Object storeOf(Path dir) throws IOException {
+        try {
+            // A single stat, much cheaper than resolving the FileStore.
+            return Files.getAttribute(dir, "unix:dev");
+        } catch (UnsupportedOperationException | IllegalArgumentException ex) {
+            return Files.getFileStore(dir);
+        }
+    }
+
+    public enum Strategy {
+        REFLINK {
+            @Override
+            void apply(Path from, Path to) throws IOException {
+                Reflink.clone(from, to);
+            }
+        },
+        HARDLINK {
+            @Override
+            void apply(Path from, Path to) throws IOException {
+                Files.createLink(to, from);
+            }
+        },
+        COPY {
+            @Override
+            void apply(Path from, Path to) throws IOException {
+                try (FileChannel in = FileChannel.open(from, StandardOpenOption.READ);
+                     FileChannel out = FileChannel.open(to, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    long size = in.size();
+                    long pos = 0;
+                    while (pos < size) {
+                        pos += in.transferTo(pos, size - pos, out);
+                    }
+                }
+            }
+        };
+
+        abstract void apply(Path from, Path to) throws IOException;
+    }
+
+    private record StoreKey(Object from, Object to) { }
+
+    private static class State {
+
+        private final StoreKey key;
+        private volatile Strategy strategy;
+        private volatile boolean confirmed;
+
+        State(StoreKey key, boolean allowHardLinks) {
+            this.key = key;
+            if (!key.from().equals(key.to())) {
+                // Neither reflinks nor hard links can cross filesystems.
+                strategy = Strategy.COPY;
+            } else if (Reflink.isAvailable()) {
+                strategy = Strategy.REFLINK;
+            } else {
+                strategy = allowHardLinks ? Strategy.HARDLINK : Strategy.COPY;
+            }
+        }
+
+        void confirm(Strategy strategy) {
+            if (confirmed || this.strategy != strategy) return;
+            confirmed = true;
+            LOGGER.info("Using {} to materialize files for {}.", strategy, key);
+        }
+
+        void fail(Strategy strategy, Strategy next, Throwable ex) {
+            // Once a strategy has worked for a filesystem, a failure is likely file specific. Fall through just for this file.
+            if (confirmed || this.strategy != strategy) return;
+            LOGGER.info("{} not supported for {}, falling back to {}.", strategy, key, next, ex);
+            this.strategy = next;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package dev.ftb.app.install.tasks;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import net.covers1624.quack.util.MultiHasher.HashFunc;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Computes multiple hashes over bytes as they are written.
+ * <p>
+ * Used by {@link DownloadTask} to hash downloads as the bytes pass through memory,
+ * instead of re-reading the file from disk afterwards.
+ */
+@SuppressWarnings ({ "deprecation", "UnstableApiUsage" })
+public final class InlineHasher extends OutputStream {
+
+    private static final Map<HashFunc, HashFunction> FUNCTIONS = new HashMap<>();
+
+    static {
+        for (HashFunction function : List.of(Hashing.md5(), Hashing.sha1(), Hashing.sha256(), Hashing.sha512())) {
+            HashFunc func = HashFunc.find(function);
+            if (func != null) {
+                FUNCTIONS.put(func, function);
+            }
+        }
+    }
+
+    private final Map<HashFunc, Hasher> hashers;
+
+    private InlineHasher(Map<HashFunc, Hasher> hashers) {
+        this.hashers = hashers;
+    }
+
+    /**
+     * Create a new {@link InlineHasher} for the given functions.
+     *
+     * @param funcs The functions.
+     * @return The hasher, or {@code null} if any of the functions are not supported for inline hashing.
+     */
+    @Nullable
+    public static InlineHasher create(Collection<HashFunc> funcs) {
+        Map<HashFunc, Hasher> hashers = new HashMap<>();
+        for (HashFunc func : funcs) {
+            HashFunction function = FUNCTIONS.get(func);
+            if (function == null) return null;
+            hashers.put(func, function.newHasher());
+        }
+        return new InlineHasher(hashers);
+    }
+
+    /**
+     * Feed the contents of an existing file into the hasher.
+     * <p>
+     * Used to seed the hasher with the existing bytes of a resumed download.
+     *
+     * @param file The file.
+     * @throws IOException If an IO error occurs.
+     */
+    void seed(Path file) throws IOException {
+        try (InputStream is = Files.newInputStream(file)) {
+            is.transferTo(this);
+        }
+    }
+
+    @Override
+    public void write(int b) {
+        for (Hasher hasher : hashers.values()) {
+            hasher.putByte((byte) b);
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        for (Hasher hasher : hashers.values()) {
+            hasher.putBytes(b, off, len);
+        }
+    }
+
+    /**
+     * Feed the remaining bytes of the given buffer into the hasher.
+     * <p>
+     * The buffer's position is advanced to its limit.
+     *
+     * @param buffer The buffer.
+     */
+    public void write(ByteBuffer buffer) {
+        for (Hasher hasher : hashers.values()) {
+            hasher.putBytes(buffer.duplicate());
+        }
+        buffer.position(buffer.limit());
+    }
+
+    /**
+     * Finish hashing.
+     * <p>
+     * This hasher may not be used after calling this method.
+     *
+     * @return The computed hashes.
+     */
+    public Map<HashFunc, HashCode> finish() {
+        Map<HashFunc, HashCode> result = new HashMap<>();
+        for (Map.Entry<HashFunc, Hasher> entry : hashers.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().hash());
+        }
+        return result;
+    }
+}
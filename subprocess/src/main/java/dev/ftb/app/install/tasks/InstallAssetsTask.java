@@ -41,7 +41,7 @@ public class InstallAssetsTask implements Task {
             progressAggregator = new ParallelTaskProgressAggregator(listener);
         }
 
-        ParallelTaskHelper.executeInParallel(token, Task.TASK_POOL, subTasks, progressAggregator);
+        ParallelTaskHelper.executeInParallel(token, subTasks, progressAggregator);
 
         if (listener != null) {
             listener.finish(progressAggregator.getProcessed());
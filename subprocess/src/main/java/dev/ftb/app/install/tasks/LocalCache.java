@@ -2,11 +2,6 @@ package dev.ftb.app.install.tasks;
 
 import com.google.common.hash.HashCode;
 import com.google.common.hash.Hashing;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.reflect.TypeToken;
-import net.covers1624.quack.gson.HashCodeAdapter;
-import net.covers1624.quack.gson.JsonUtils;
 import net.covers1624.quack.util.HashUtils;
 import net.covers1624.quack.util.MultiHasher.HashFunc;
 import dev.ftb.app.install.FileValidation;
@@ -17,32 +12,19 @@ import org.apache.logging.log4j.Logger;
 import org.jspecify.annotations.Nullable;
 
 import java.io.IOException;
-import java.lang.reflect.Type;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
-import java.nio.file.attribute.BasicFileAttributes;
-import java.nio.file.attribute.FileTime;
-import java.time.Duration;
-import java.time.Instant;
-import java.util.Collections;
-import java.util.Iterator;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Map;
 
 @SuppressWarnings ({ "deprecation", "UnstableApiUsage" })
 public class LocalCache implements DownloadTask.LocalFileLocator {
 
     private static final Logger LOGGER = LogManager.getLogger();
-    private static final Gson GSON = new GsonBuilder()
-            .registerTypeAdapter(HashCode.class, new HashCodeAdapter())
-            .create();
-    private static final Type SET_TYPE = new TypeToken<Set<HashCode>>() { }.getType();
 
     private final Path cacheLocation;
-    private final Path cacheIndexFile;
-    private final Set<HashCode> files = Collections.newSetFromMap(new ConcurrentHashMap<>());
-    private boolean isDirty = false;
+    private final LocalCacheIndex index;
+    // Both directions of the cache touch instance files, which are edited in place. Hard links would share those edits with the cache.
+    private final FileMaterializer materializer = new FileMaterializer(false);
 
     public LocalCache(Path cacheLocation) {
         this.cacheLocation = cacheLocation;
@@ -50,25 +32,8 @@ public class LocalCache implements DownloadTask.LocalFileLocator {
             LOGGER.error("Unable to create instance directory");
         }
 
-        cacheIndexFile = cacheLocation.resolve("index.json");
-
-        if (Files.exists(cacheIndexFile)) {
-            try {
-                Set<HashCode> index = JsonUtils.parse(GSON, cacheIndexFile, SET_TYPE);
-                for (HashCode hash : index) {
-                    Path file = cacheLocation.resolve(makePath(hash));
-                    if (Files.notExists(file)) {
-                        isDirty = true;
-                        LOGGER.warn("File in cache index does not exist, ignoring.. {}:{}", hash, file);
-                        continue;
-                    }
-                    files.add(hash);
-                }
-            } catch (Throwable e) {
-                LOGGER.error("Failed to load cache index.", e);
-            }
-        }
-        save();
+        // Loaded lazily on first access.
+        index = new LocalCacheIndex(cacheLocation.resolve("index.bin"), cacheLocation.resolve("index.json"));
     }
 
     /**
@@ -78,7 +43,7 @@ public class LocalCache implements DownloadTask.LocalFileLocator {
      * @return If the file exists in the cache.
      */
     public boolean exists(HashCode hash) {
-        return files.contains(hash);
+        return index.contains(hash);
     }
 
     /**
@@ -89,19 +54,30 @@ public class LocalCache implements DownloadTask.LocalFileLocator {
      */
     @Nullable
     public Path get(HashCode hash) {
-        if (!files.contains(hash)) return null;
+        if (!index.contains(hash)) return null;
         String path = makePath(hash);
 
         Path file = cacheLocation.resolve(path);
         if (Files.notExists(file)) {//Should never happen.
             LOGGER.warn("Removing stale cache entry for {}:{}", hash, file);
-            synchronized (files) {
-                files.remove(hash);
-                isDirty = true;
-                save();
+            index.remove(hash);
+            return null;
+        }
+        // Catch cache files which were modified or truncated in place, e.g. by external tools or an interrupted
+        // write, so they are never materialized into an instance.
+        LocalCacheIndex.Entry entry = index.get(hash);
+        try {
+            if (entry != null && entry.size() != -1 && Files.size(file) != entry.size()) {
+                LOGGER.warn("Removing modified cache entry for {}:{}", hash, file);
+                index.remove(hash);
+                Files.deleteIfExists(file);
+                return null;
             }
+        } catch (IOException ex) {
+            LOGGER.warn("Failed to check cache entry {}:{}", hash, file, ex);
             return null;
         }
+        index.touch(hash);
         return file;
     }
 
@@ -115,7 +91,7 @@ public class LocalCache implements DownloadTask.LocalFileLocator {
     public void put(Path f, HashCode hash) throws IllegalArgumentException {
         if (hash.bits() != 160) throw new IllegalArgumentException("SHA1 hash not provided.");
         if (Files.notExists(f)) return;// File doesn't exist.
-        if (files.contains(hash)) return;// File already cached.
+        if (index.contains(hash)) return;// File already cached.
         String path = makePath(hash);
         Path file = cacheLocation.resolve(path);
 
@@ -139,7 +115,7 @@ public class LocalCache implements DownloadTask.LocalFileLocator {
                 }
 
                 // Well, the file exists, size and hash match, just add.
-                addAndSave(hash);
+                index.add(hash, aLen);
             } catch (IOException ex) {
                 LOGGER.error("Failed to do LocalStorage.add pre-checks.", ex);
             }
@@ -158,82 +134,33 @@ public class LocalCache implements DownloadTask.LocalFileLocator {
                 }
             }
             Files.createDirectories(file.getParent());
-            Files.copy(f, file, StandardCopyOption.REPLACE_EXISTING);
-            addAndSave(hash);
+            materializer.materialize(f, file);
+            index.add(hash, Files.size(file));
         } catch (IOException e) {
             LOGGER.error("Failed to add '{}' to local cache.", f.toAbsolutePath(), e);
         }
     }
 
-    private void addAndSave(HashCode hash) {
-        synchronized (files) {
-            files.add(hash);
-            isDirty = true;
-            save();
-        }
-    }
-
     /**
      * Removes any files that are too old from the cache.
      */
     public void clean() {
         long cacheLife = Settings.getSettings().general().cacheLife();
         if (cacheLife < 0) cacheLife = 900L;
-        synchronized (files) {
-            Instant now = Instant.now();
-            for (Iterator<HashCode> iterator = files.iterator(); iterator.hasNext(); ) {
-                HashCode hash = iterator.next();
-                String path = makePath(hash);
-                Path file = cacheLocation.resolve(path);
-                if (shouldPurge(file, now, cacheLife)) {
-                    try {
-                        isDirty = true;
-                        Files.deleteIfExists(file);
-                        iterator.remove();
-                    } catch (IOException ignored) {
-                    }
+        long now = System.currentTimeMillis();
+        for (Map.Entry<HashCode, LocalCacheIndex.Entry> entry : index.entries().entrySet()) {
+            HashCode hash = entry.getKey();
+            Path file = cacheLocation.resolve(makePath(hash));
+            long age = now - entry.getValue().lastAccess();
+            if (age >= 0 && age / 1000 > cacheLife) {
+                try {
+                    Files.deleteIfExists(file);
+                    index.remove(hash);
+                } catch (IOException ignored) {
                 }
             }
-            save();
-        }
-    }
-
-    /**
-     * Flushes the Cache index to disk if it has been marked as dirty.
-     */
-    private void save() {
-        if (!isDirty) return;
-
-        try {
-            JsonUtils.write(GSON, cacheIndexFile, files, SET_TYPE);
-        } catch (IOException e) {
-            LOGGER.error("Failed to save cache index.", e);
-        }
-    }
-
-    /**
-     * Checks if the given file should be purged from the Cache.
-     *
-     * @param file      The file to check.
-     * @param now       The time right now.
-     * @param cacheLife The maximum age of a file.
-     * @return If the file should be purged.
-     */
-    private boolean shouldPurge(Path file, Instant now, long cacheLife) {
-        if (Files.notExists(file)) {
-            return true;
-        }
-        BasicFileAttributes attrs;
-        try {
-            attrs = Files.readAttributes(file, BasicFileAttributes.class);
-        } catch (IOException e) {
-            LOGGER.warn("Unable to load attributes of file. {}", file.toAbsolutePath(), e);
-            return true;
         }
-        FileTime time = attrs.lastAccessTime();
-        if (time == null) time = attrs.creationTime();
-        Duration age = Duration.between(time.toInstant(), now);
-        return !age.isNegative() && (age.toMillis() / 1000) > cacheLife;
+        index.maybeCompact();
     }
 
     /**
@@ -261,6 +188,11 @@ public class LocalCache implements DownloadTask.LocalFileLocator {
 
     }
 
+    @Override
+    public void materialize(Path localFile, Path dest) throws IOException {
+        materializer.materialize(localFile, dest);
+    }
+
     @Override
     public void onFileDownloaded(FileValidation validation, Path dest) {
         HashCode expectedSha1 = validation.expectedHashes.get(HashFunc.SHA1);
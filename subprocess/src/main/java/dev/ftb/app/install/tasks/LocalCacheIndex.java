@@ -0,0 +1,336 @@
+package dev.ftb.app.install.tasks;
+
+import com.google.common.hash.HashCode;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+import net.covers1624.quack.gson.HashCodeAdapter;
+import net.covers1624.quack.gson.JsonUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * The on-disk index backing {@link LocalCache}.
+ * <p>
+ * The index is an append-only log of fixed width records. Each record is:
+ * <pre>
+ * u8   op          (PUT, REMOVE or TOUCH)
+ * u8[20] sha1
+ * i64  size        (-1 if unknown)
+ * i64  lastAccess  (epoch millis)
+ * u32  crc32       (of the preceding bytes)
+ * </pre>
+ * Records are replayed in order on load. A torn or corrupt tail, as left by a crash
+ * mid-write, is truncated away. Once the log contains significantly more records than
+ * live entries, it is compacted into a fresh snapshot and atomically swapped in.
+ * <p>
+ * The index is loaded lazily on first access.
+ */
+@SuppressWarnings ("UnstableApiUsage")
+class LocalCacheIndex {
+
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    private static final int MAGIC = 0x46544243; // FTBC
+    private static final int VERSION = 1;
+    private static final int HEADER_LEN = 8;
+
+    private static final int SHA1_LEN = 20;
+    private static final int RECORD_LEN = 1 + SHA1_LEN + 8 + 8 + 4;
+
+    private static final byte OP_PUT = 1;
+    private static final byte OP_REMOVE = 2;
+    private static final byte OP_TOUCH = 3;
+
+    // Compact once the log holds this many records, and more than twice the live entries.
+    private static final int COMPACT_MIN_RECORDS = 4096;
+    // Don't bother logging access stamps more often than this per entry.
+    private static final long TOUCH_GRANULARITY = 60 * 60 * 1000L;
+
+    private final Path indexFile;
+    private final Path legacyIndexFile;
+    private final Map<HashCode, Entry> entries = new ConcurrentHashMap<>();
+
+    private volatile boolean loaded;
+    private int logRecords;
+
+    LocalCacheIndex(Path indexFile, Path legacyIndexFile) {
+        this.indexFile = indexFile;
+        this.legacyIndexFile = legacyIndexFile;
+    }
+
+    /**
+     * Checks if the given hash is tracked by the index.
+     *
+     * @param hash The hash.
+     * @return If the hash is in the index.
+     */
+    boolean contains(HashCode hash) {
+        ensureLoaded();
+        return entries.containsKey(hash);
+    }
+
+    /**
+     * Gets the {@link Entry} for a given hash.
+     *
+     * @param hash The hash.
+     * @return The entry, or {@code null} if it is not in the index.
+     */
+    @Nullable
+    Entry get(HashCode hash) {
+        ensureLoaded();
+        return entries.get(hash);
+    }
+
+    /**
+     * @return An immutable snapshot of all entries currently in the index.
+     */
+    Map<HashCode, Entry> entries() {
+        ensureLoaded();
+        return Map.copyOf(entries);
+    }
+
+    /**
+     * Adds a new entry to the index.
+     *
+     * @param hash The SHA1 hash of the file.
+     * @param size The size of the file.
+     */
+    void add(HashCode hash, long size) {
+        ensureLoaded();
+        synchronized (this) {
+            Entry entry = new Entry(size, System.currentTimeMillis());
+            entries.put(hash, entry);
+            append(OP_PUT, hash, entry);
+        }
+    }
+
+    /**
+     * Removes an entry from the index.
+     *
+     * @param hash The hash to remove.
+     */
+    void remove(HashCode hash) {
+        ensureLoaded();
+        synchronized (this) {
+            Entry existing = entries.remove(hash);
+            if (existing == null) return;
+            append(OP_REMOVE, hash, existing);
+        }
+    }
+
+    /**
+     * Marks the given entry as accessed.
+     * <p>
+     * Access stamps are only persisted if the previous stamp is older than
+     * {@link #TOUCH_GRANULARITY}, to avoid growing the log on every lookup.
+     *
+     * @param hash The hash.
+     */
+    void touch(HashCode hash) {
+        ensureLoaded();
+        long now = System.currentTimeMillis();
+        Entry existing = entries.get(hash);
+        if (existing == null || now - existing.lastAccess() < TOUCH_GRANULARITY) return;
+
+        synchronized (this) {
+            Entry entry = new Entry(existing.size(), now);
+            if (entries.replace(hash, existing, entry)) {
+                append(OP_TOUCH, hash, entry);
+            }
+        }
+    }
+
+    /**
+     * Compacts the log if it has accumulated enough dead records.
+     */
+    void maybeCompact() {
+        ensureLoaded();
+        synchronized (this) {
+            if (shouldCompact()) {
+                compact();
+            }
+        }
+    }
+
+    private void ensureLoaded() {
+        if (loaded) return;
+        synchronized (this) {
+            if (loaded) return;
+            load();
+            loaded = true;
+        }
+    }
+
+    private void load() {
+        if (Files.notExists(indexFile)) {
+            if (Files.exists(legacyIndexFile)) {
+                importLegacyIndex();
+            }
+            return;
+        }
+
+        try {
+            ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(indexFile));
+
+            if (buf.remaining() < HEADER_LEN || buf.getInt() != MAGIC || buf.getInt() != VERSION) {
+                LOGGER.warn("Cache index {} has an invalid header, discarding.", indexFile);
+                entries.clear();
+                compact();
+                return;
+            }
+
+            byte[] sha1 = new byte[SHA1_LEN];
+            CRC32 crc = new CRC32();
+            int validEnd = buf.position();
+            int records = 0;
+            while (buf.remaining() >= RECORD_LEN) {
+                int start = buf.position();
+                crc.reset();
+                crc.update(buf.slice(start, RECORD_LEN - 4));
+
+                byte op = buf.get();
+                buf.get(sha1);
+                long size = buf.getLong();
+                long lastAccess = buf.getLong();
+                int storedCrc = buf.getInt();
+                if ((int) crc.getValue() != storedCrc) break;
+
+                HashCode hash = HashCode.fromBytes(sha1);
+                switch (op) {
+                    case OP_PUT, OP_TOUCH -> entries.put(hash, new Entry(size, lastAccess));
+                    case OP_REMOVE -> entries.remove(hash);
+                    default -> LOGGER.warn("Unknown cache index op {}, ignoring.", op);
+                }
+                records++;
+                validEnd = buf.position();
+            }
+            logRecords = records;
+
+            if (validEnd != buf.limit()) {
+                LOGGER.warn("Cache index {} has a torn tail of {} bytes, truncating.", indexFile, buf.limit() - validEnd);
+                try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.WRITE)) {
+                    channel.truncate(validEnd);
+                }
+            }
+            if (shouldCompact()) {
+                compact();
+            }
+        } catch (IOException ex) {
+            LOGGER.error("Failed to load cache index.", ex);
+        }
+    }
+
+    private void importLegacyIndex() {
+        Gson gson = new GsonBuilder()
+                .registerTypeAdapter(HashCode.class, new HashCodeAdapter())
+                .create();
+        Type setType = new TypeToken<Set<HashCode>>() { }.getType();
+        try {
+            Set<HashCode> legacy = JsonUtils.parse(gson, legacyIndexFile, setType);
+            long now = System.currentTimeMillis();
+            for (HashCode hash : legacy) {
+                entries.put(hash, new Entry(-1, now));
+            }
+            LOGGER.info("Migrated {} entries from legacy cache index.", legacy.size());
+        } catch (Throwable ex) {
+            LOGGER.error("Failed to load legacy cache index.", ex);
+        }
+        compact();
+        try {
+            Files.deleteIfExists(legacyIndexFile);
+        } catch (IOException ex) {
+            LOGGER.warn("Failed to delete legacy cache index.", ex);
+        }
+    }
+
+    private boolean shouldCompact() {
+        return logRecords >= COMPACT_MIN_RECORDS && logRecords > entries.size() * 2;
+    }
+
+    private void compact() {
+        Path tempFile = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(indexFile.getParent());
+            try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buf = ByteBuffer.allocate(HEADER_LEN + entries.size() * RECORD_LEN);
+                writeHeader(buf);
+                int records = 0;
+                for (Map.Entry<HashCode, Entry> entry : entries.entrySet()) {
+                    writeRecord(buf, OP_PUT, entry.getKey(), entry.getValue());
+                    records++;
+                }
+                buf.flip();
+                while (buf.hasRemaining()) {
+                    channel.write(buf);
+                }
+                channel.force(true);
+                logRecords = records;
+            }
+            Files.move(tempFile, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            LOGGER.error("Failed to compact cache index.", ex);
+        }
+    }
+
+    private void append(byte op, HashCode hash, Entry entry) {
+        try {
+            Files.createDirectories(indexFile.getParent());
+            try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                ByteBuffer buf = ByteBuffer.allocate(HEADER_LEN + RECORD_LEN);
+                // The index may have been deleted out from under us (purged), start a fresh log.
+                if (channel.size() == 0) {
+                    writeHeader(buf);
+                    logRecords = 0;
+                }
+                writeRecord(buf, op, hash, entry);
+                buf.flip();
+                while (buf.hasRemaining()) {
+                    channel.write(buf);
+                }
+            }
+            logRecords++;
+        } catch (IOException ex) {
+            LOGGER.error("Failed to append to cache index.", ex);
+        }
+    }
+
+    private static void writeHeader(ByteBuffer buf) {
+        buf.putInt(MAGIC);
+        buf.putInt(VERSION);
+    }
+
+    private static void writeRecord(ByteBuffer buf, byte op, HashCode hash, Entry entry) {
+        int start = buf.position();
+        buf.put(op);
+        buf.put(hash.asBytes());
+        buf.putLong(entry.size());
+        buf.putLong(entry.lastAccess());
+
+        CRC32 crc = new CRC32();
+        crc.update(buf.slice(start, RECORD_LEN - 4));
+        buf.putInt((int) crc.getValue());
+    }
+
+    /**
+     * A single entry in the index.
+     *
+     * @param size       The size of the file, or {@code -1} if unknown.
+     * @param lastAccess The last time this entry was accessed, in epoch millis.
+     */
+    record Entry(long size, long lastAccess) { }
+}
@@ -0,0 +1,251 @@
+package dev.ftb.app.install.tasks;
+
+import net.covers1624.quack.net.HttpResponseException;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.internal.http2.StreamResetException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.net.ssl.SSLException;
+import java.io.IOException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * A process-wide table of mirror host health and latency, used by {@link DownloadTask}
+ * to pick which mirror to try first and to skip mirrors which are known to be down.
+ * <p>
+ * Latency is tracked as an EWMA of time-to-response-headers. Hosts which fail repeatedly
+ * at the connection level, or with server errors, are considered unhealthy for an
+ * exponentially increasing window.
+ */
+public class MirrorHealth {
+
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    private static final double LATENCY_ALPHA = 0.3;
+    // Consider another mirror faster only if the preferred mirror is at least this much slower.
+    private static final double LATENCY_PREFERENCE = 2.0;
+    private static final int FAILURE_THRESHOLD = 2;
+    private static final long BASE_PENALTY = TimeUnit.SECONDS.toNanos(5);
+    private static final long MAX_PENALTY = TimeUnit.MINUTES.toNanos(5);
+    private static final long RACE_TIMEOUT = TimeUnit.SECONDS.toNanos(15);
+
+    private static final MirrorHealth INSTANCE = new MirrorHealth();
+
+    private final Map<String, HostHealth> hosts = new ConcurrentHashMap<>();
+
+    public static MirrorHealth get() {
+        return INSTANCE;
+    }
+
+    private MirrorHealth() {
+    }
+
+    /**
+     * Orders the given mirror urls by health and latency.
+     * <p>
+     * Unhealthy mirrors are moved to the end, keeping their relative order. If the first healthy
+     * mirror is known to be much slower than another healthy mirror, the faster one is moved to the front.
+     * Otherwise, the original order is preserved.
+     *
+     * @param urls The urls, in order of preference.
+     * @return The new ordering.
+     */
+    public List<String> order(List<String> urls) {
+        if (urls.size() < 2) return urls;
+
+        long now = System.nanoTime();
+        List<String> healthy = new ArrayList<>(urls.size());
+        List<String> unhealthy = new ArrayList<>();
+        for (String url : urls) {
+            (isHealthy(url, now) ? healthy : unhealthy).add(url);
+        }
+
+        if (healthy.size() > 1) {
+            double firstLatency = latency(healthy.get(0));
+            int fastest = -1;
+            double fastestLatency = Double.MAX_VALUE;
+            for (int i = 1; i < healthy.size(); i++) {
+                double latency = latency(healthy.get(i));
+                if (latency > 0 && latency < fastestLatency) {
+                    fastest = i;
+                    fastestLatency = latency;
+                }
+            }
+            if (fastest != -1 && firstLatency > 0 && firstLatency > fastestLatency * LATENCY_PREFERENCE) {
+                healthy.add(0, healthy.remove(fastest));
+            }
+        }
+        healthy.addAll(unhealthy);
+        return healthy;
+    }
+
+    /**
+     * Race the first byte of the given urls against each other, moving the first to respond to the front.
+     * <p>
+     * The losing requests are cancelled. Every response, or failure, feeds the health table.
+     *
+     * @param urls       The urls, in order of preference.
+     * @param httpClient The client to use.
+     * @param newRequest Factory for a base request to the given url.
+     * @return The new ordering.
+     */
+    public List<String> race(List<String> urls, OkHttpClient httpClient, Function<String, Request.Builder> newRequest) {
+        if (urls.size() < 2) return urls;
+
+        List<String> contenders = urls.subList(0, 2);
+        CompletableFuture<String> winner = new CompletableFuture<>();
+        AtomicInteger remaining = new AtomicInteger(contenders.size());
+        List<Call> calls = new ArrayList<>(contenders.size());
+        for (String url : contenders) {
+            String host = DownloadTask.hostOf(url);
+            long start = System.nanoTime();
+            Call call = httpClient.newCall(newRequest.apply(url).header("Range", "bytes=0-0").build());
+            calls.add(call);
+            call.enqueue(new Callback() {
+                @Override
+                public void onResponse(Call call, Response response) {
+                    try (response) {
+                        if (host != null) MirrorHealth.this.onResponse(host, System.nanoTime() - start);
+                        if (response.isSuccessful()) {
+                            winner.complete(url);
+                            return;
+                        }
+                        if (host != null) MirrorHealth.this.onFailure(host, new HttpResponseException(response.code(), response.message()));
+                    }
+                    if (remaining.decrementAndGet() == 0) winner.complete(null);
+                }
+
+                @Override
+                public void onFailure(Call call, IOException ex) {
+                    if (!call.isCanceled() && host != null) MirrorHealth.this.onFailure(host, ex);
+                    if (remaining.decrementAndGet() == 0) winner.complete(null);
+                }
+            });
+        }
+
+        String result = null;
+        try {
+            result = winner.get(RACE_TIMEOUT, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException | ExecutionException | TimeoutException ignored) {
+        } finally {
+            for (Call call : calls) {
+                call.cancel();
+            }
+        }
+        if (result == null || result.equals(urls.get(0))) return urls;
+
+        LOGGER.info("Mirror {} won the race against {}.", result, urls.get(0));
+        List<String> ordered = new ArrayList<>(urls);
+        ordered.remove(result);
+        ordered.add(0, result);
+        return ordered;
+    }
+
+    /**
+     * @param url The url.
+     * @return If the host for the given url is currently considered unhealthy.
+     */
+    public boolean isUnhealthy(String url) {
+        return !isHealthy(url, System.nanoTime());
+    }
+
+    /**
+     * Record the time it took the given host to respond with headers.
+     *
+     * @param host  The host.
+     * @param nanos The time to response.
+     */
+    public void onResponse(String host, long nanos) {
+        getHost(host).onResponse(nanos);
+    }
+
+    /**
+     * Record a failed request to the given host.
+     * <p>
+     * Only failures which indicate a problem with the host itself are counted.
+     *
+     * @param host The host.
+     * @param ex   The failure.
+     */
+    public void onFailure(String host, Throwable ex) {
+        if (!isHostFailure(ex)) return;
+        getHost(host).onFailure(System.nanoTime());
+    }
+
+    private boolean isHealthy(String url, long now) {
+        String host = DownloadTask.hostOf(url);
+        if (host == null) return true;
+        HostHealth health = hosts.get(host);
+        return health == null || health.isHealthy(now);
+    }
+
+    private double latency(String url) {
+        String host = DownloadTask.hostOf(url);
+        if (host == null) return -1;
+        HostHealth health = hosts.get(host);
+        return health == null ? -1 : health.latency;
+    }
+
+    private HostHealth getHost(String host) {
+        return hosts.computeIfAbsent(host, HostHealth::new);
+    }
+
+    private static boolean isHostFailure(Throwable ex) {
+        for (Throwable t = ex; t != null; t = t.getCause()) {
+            if (t instanceof HttpResponseException httpEx) {
+                return httpEx.code >= 500 || httpEx.code == 429;
+            }
+            if (t instanceof UnknownHostException
+                    || t instanceof SocketTimeoutException
+                    || t instanceof SocketException
+                    || t instanceof SSLException
+                    || t instanceof StreamResetException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static class HostHealth {
+
+        private final String name;
+        private volatile double latency = -1;
+        private int failures;
+        private long unhealthyUntil;
+
+        HostHealth(String name) {
+            this.name = name;
+        }
+
+        synchronized void onResponse(long nanos) {
+            latency = latency < 0 ? nanos : latency + LATENCY_ALPHA * (nanos - latency);
+            failures = 0;
+        }
+
+        synchronized void onFailure(long now) {
+            failures++;
+            if (failures >= FAILURE_THRESHOLD) {
+                long penalty = Math.min(MAX_PENALTY, BASE_PENALTY << Math.min(failures - FAILURE_THRESHOLD, 16));
+                unhealthyUntil = now + penalty;
+                LOGGER.warn("Mirror {} marked unhealthy for {}s after {} failures.", name, TimeUnit.NANOSECONDS.toSeconds(penalty), failures);
+            }
+        }
+
+        synchronized boolean isHealthy(long now) {
+            return failures < FAILURE_THRESHOLD || now - unhealthyUntil >= 0;
+        }
+    }
+}
@@ -11,7 +11,6 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
 
 import static net.covers1624.quack.util.SneakyUtils.notPossible;
 
@@ -19,18 +18,26 @@ public class ParallelTaskHelper {
 
     private static final Logger LOGGER = LogManager.getLogger();
 
-    public static <T extends Task> void executeInParallel(@Nullable CancellationToken token, ExecutorService executor, List<T> tasks, @Nullable TaskProgressAggregator listener) {
+    /**
+     * Execute the given tasks in parallel through the {@link DownloadScheduler}, blocking until all have finished.
+     *
+     * @param token    The cancellation token.
+     * @param tasks    The tasks.
+     * @param listener The progress listener.
+     */
+    public static <T extends Task> void executeInParallel(@Nullable CancellationToken token, List<T> tasks, @Nullable TaskProgressAggregator listener) {
+        DownloadScheduler scheduler = DownloadScheduler.get();
         List<Throwable> failures = Collections.synchronizedList(new LinkedList<>());
         List<CompletableFuture<?>> futures = new LinkedList<>();
         for (T task : tasks) {
-            CompletableFuture<?> future = CompletableFuture.runAsync(() -> {
+            CompletableFuture<?> future = scheduler.submit(task.schedulingKey(), () -> {
                 if (token != null && token.isCanceled()) return;
                 try {
                     task.execute(token, listener);
                 } catch (Throwable e) {
                     failures.add(e);
                 }
-            }, executor);
+            });
             futures.add(future);
         }
         for (CompletableFuture<?> future : futures) {
@@ -1,26 +1,13 @@
 package dev.ftb.app.install.tasks;
 
 import dev.ftb.app.pack.CancellationToken;
-import dev.ftb.app.storage.settings.Settings;
 import org.jspecify.annotations.Nullable;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
-
 /**
  * A Task.
  */
 public interface Task {
 
-    ExecutorService TASK_POOL = new ThreadPoolExecutor(
-            Settings.getThreadLimit(),
-            Settings.getThreadLimit(),
-            60L, TimeUnit.SECONDS,
-            new LinkedBlockingQueue<>()
-    );
-
     /**
      * Execute this task.
      *
@@ -28,4 +15,14 @@ public interface Task {
      * @throws Throwable If any exception is thrown whilst executing the task.
      */
     void execute(@Nullable CancellationToken cancelToken, @Nullable TaskProgressListener listener) throws Throwable;
+
+    /**
+     * The key used by {@link DownloadScheduler} to group tasks which share a concurrency limit.
+     *
+     * @return The host this task talks to, or {@code null} if unknown.
+     */
+    @Nullable
+    default String schedulingKey() {
+        return null;
+    }
 }
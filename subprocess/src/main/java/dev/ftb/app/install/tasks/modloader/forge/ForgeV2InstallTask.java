@@ -14,7 +14,7 @@ import dev.ftb.app.minecraft.jsons.VersionManifest;
 import dev.ftb.app.pack.CancellationToken;
 import dev.ftb.app.pack.Instance;
 import dev.ftb.app.storage.settings.Settings;
-import dev.ftb.app.util.StreamGobblerLog;
+import dev.ftb.app.util.StreamGobbler;
 import joptsimple.OptionException;
 import joptsimple.OptionParser;
 import joptsimple.OptionSet;
@@ -37,6 +37,7 @@ import java.io.IOException;
 import java.lang.reflect.Type;
 import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -282,25 +283,26 @@ public class ForgeV2InstallTask extends AbstractForgeInstallTask {
         LOGGER.info("Starting processor with command '{}'", String.join(" ", builder.command()));
         try {
             Process process = builder.start();
-            StreamGobblerLog stdoutGobbler = new StreamGobblerLog()
+            StreamGobbler stdoutGobbler = new StreamGobbler()
+                    .setName("Forge Processor STDOUT Gobbler")
                     .setInput(process.getInputStream())
                     .setOutput(LOGGER::info);
             stdoutGobbler.start();
-            StreamGobblerLog stderrGobbler = new StreamGobblerLog()
+            StreamGobbler stderrGobbler = new StreamGobbler()
+                    .setName("Forge Processor STDERR Gobbler")
                     .setInput(process.getErrorStream())
                     .setOutput(LOGGER::warn);
             stderrGobbler.start();
 
-            process.onExit().thenRunAsync(() -> {
-                stdoutGobbler.stop();
-                stderrGobbler.stop();
-            });
             while (process.isAlive()) {
                 try {
                     process.waitFor();
                 } catch (InterruptedException ignored) {
                 }
             }
+            // Finish logging the processor's output before we report on it.
+            stdoutGobbler.stop(1, TimeUnit.SECONDS);
+            stderrGobbler.stop(1, TimeUnit.SECONDS);
             int exit = process.exitValue();
             if (exit != 0) {
                 LOGGER.error("Processor process exited with non zero exit status. {}", exit);
@@ -0,0 +1,116 @@
+package dev.ftb.app.os;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.lang.foreign.*;
+import java.lang.invoke.MethodHandle;
+import java.nio.file.Path;
+
+import static java.lang.foreign.ValueLayout.*;
+
+/**
+ * Copy-on-write file cloning via the Linux {@code FICLONE} ioctl.
+ * <p>
+ * Supported by Btrfs, XFS (with reflink=1), bcachefs and others. On any other
+ * platform, or if the native symbols cannot be bound, {@link #isAvailable()}
+ * returns {@code false}.
+ */
+public final class Reflink {
+
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    // _IOW(0x94, 9, int)
+    private static final long FICLONE = 0x40049409L;
+
+    // Same values on x86_64 and aarch64.
+    private static final int O_RDONLY = 0;
+    private static final int O_WRONLY = 01;
+    private static final int O_CREAT = 0100;
+    private static final int O_TRUNC = 01000;
+    private static final int O_CLOEXEC = 02000000;
+
+    @Nullable
+    private static final Natives NATIVES = OS.CURRENT == OS.LINUX ? Natives.bind() : null;
+
+    private Reflink() {
+    }
+
+    /**
+     * @return If reflink cloning can be attempted on this platform.
+     */
+    public static boolean isAvailable() {
+        return NATIVES != null;
+    }
+
+    /**
+     * Clone {@code from} into {@code to}, sharing the underlying extents.
+     * <p>
+     * {@code to} is created or truncated. If the clone fails, {@code to} may be
+     * left as an empty file.
+     *
+     * @param from The source file.
+     * @param to   The destination file.
+     * @throws IOException If the filesystem does not support reflinks or any other error occurred.
+     */
+    public static void clone(Path from, Path to) throws IOException {
+        Natives natives = NATIVES;
+        if (natives == null) throw new IOException("Reflink not supported on this platform.");
+
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment fromPath = arena.allocateFrom(from.toAbsolutePath().toString());
+            MemorySegment toPath = arena.allocateFrom(to.toAbsolutePath().toString());
+
+            int src = (int) natives.open.invokeExact(fromPath, O_RDONLY | O_CLOEXEC, 0);
+            if (src < 0) throw new IOException("Failed to open " + from);
+            try {
+                int dst = (int) natives.open.invokeExact(toPath, O_WRONLY | O_CREAT | O_TRUNC | O_CLOEXEC, 0644);
+                if (dst < 0) throw new IOException("Failed to open " + to);
+                try {
+                    int ret = (int) natives.ioctl.invokeExact(dst, FICLONE, src);
+                    if (ret != 0) throw new IOException("FICLONE failed for " + from + " -> " + to);
+                } finally {
+                    int ignored = (int) natives.close.invokeExact(dst);
+                }
+            } finally {
+                int ignored = (int) natives.close.invokeExact(src);
+            }
+        } catch (IOException ex) {
+            throw ex;
+        } catch (Throwable ex) {
+            throw new IOException("Native call failed.", ex);
+        }
+    }
+
+    private record Natives(MethodHandle open, MethodHandle ioctl, MethodHandle close) {
+
+        @Nullable
+        static Natives bind() {
+            try {
+                Linker linker = Linker.nativeLinker();
+                SymbolLookup libc = linker.defaultLookup();
+                return new Natives(
+                        linker.downcallHandle(
+                                libc.find("open").orElseThrow(),
+                                FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_INT, JAVA_INT),
+                                Linker.Option.firstVariadicArg(2)
+                        ),
+                        linker.downcallHandle(
+                                libc.find("ioctl").orElseThrow(),
+                                FunctionDescriptor.of(JAVA_INT, JAVA_INT, JAVA_LONG, JAVA_INT),
+                                Linker.Option.firstVariadicArg(2)
+                        ),
+                        linker.downcallHandle(
+                                libc.find("close").orElseThrow(),
+                                FunctionDescriptor.of(JAVA_INT, JAVA_INT)
+                        )
+                );
+            } catch (Throwable ex) {
+                LOGGER.warn("Failed to bind reflink natives, reflinks disabled.", ex);
+                return null;
+            }
+        }
+    }
+}
@@ -25,9 +25,9 @@ import dev.ftb.app.util.DialogUtil;
 import dev.ftb.app.util.FileUtils;
 import dev.ftb.app.util.HashingUtils;
 import dev.ftb.app.util.MiscUtils;
+import dev.ftb.app.util.ModVersionCache;
 import net.covers1624.quack.gson.JsonUtils;
 import net.covers1624.quack.platform.OperatingSystem;
-import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.logging.log4j.LogManager;
@@ -44,7 +44,10 @@ import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Base64;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
@@ -73,6 +76,7 @@ public class Instance {
     
     public InstanceJson props;
     private @Nullable InstanceModifications modifications;
+    private @Nullable ModIndex modIndex;
 
     private final InstanceLauncher launcher = new InstanceLauncher(this);
     @Nullable
@@ -580,6 +584,10 @@ public class Instance {
 
         Path modsDir = path.resolve("mods");
 
+        if (rich) {
+            prefetchCurseMeta(modsManifest, modifications);
+        }
+
         // Populate all mods from the regular version manifest.
         for (ModpackVersionManifest.ModpackFile file : versionManifest.getFiles()) {
             if (!isInModPath(file.getPath()) || !isMod(file.getName())) {
@@ -662,16 +670,27 @@ public class Instance {
             }
         }
         
+        Set<String> knownNames = new HashSet<>();
+        for (ModInfo mod : mods) {
+            knownNames.add(mod.fileName());
+        }
+
+        if (modIndex == null) {
+            modIndex = ModIndex.load(metaPath);
+        }
+        Set<String> presentNames = new HashSet<>();
+        Map<Path, HashingUtils.ModHashes> unknownMods = new LinkedHashMap<>();
         for (Path path : FileUtils.listDir(modsDir)) {
             if (!Files.isRegularFile(path)) continue;
 
             String fName = path.getFileName().toString();
             if (!isMod(fName)) continue;
+            presentNames.add(fName);
             
             String fName2 = StringUtils.stripEnd(fName, ".disabled");
             
             // Do we already know about the mod?
-            if (mods.stream().anyMatch(e -> e.fileName().equals(fName) || e.fileName().equals(fName2))) {
+            if (knownNames.contains(fName) || knownNames.contains(fName2)) {
                 if (!fName2.equals(fName)) {
                     System.out.println("Skipping known disabled mod: " + fName);
                 }
@@ -680,31 +699,39 @@ public class Instance {
             
             LOGGER.info("Found unknown mod in Mods folder. {}", fName);
             // We don't know about the mod! We need to add it and create a Modification for it.
-
-            long murmurHash;
-            String sha1;
-            long size;
             try {
-                size = Files.size(path);
-                var fileBytes = Files.readAllBytes(path);     
-                
-                sha1 = DigestUtils.sha1Hex(fileBytes);
-                murmurHash = HashingUtils.createCurseForgeMurmurHash(fileBytes);
-
+                unknownMods.put(path, modIndex.hash(path));
             } catch (IOException ex) {
                 LOGGER.error("Error reading file. Unable to process this whilst generating mods list.", ex);
-                continue;
             }
+        }
+        modIndex.retain(presentNames);
+        modIndex.saveIfDirty();
+
+        // Identify all unknown mods in one request.
+        Map<String, FileMetadata> lookups = Map.of();
+        if (!unknownMods.isEmpty()) {
+            lookups = CurseMetadataCache.get().queryMetadata(unknownMods.values().stream()
+                    .map(e -> String.valueOf(e.murmur()))
+                    .toArray(String[]::new)
+            );
+        }
+
+        for (Map.Entry<Path, HashingUtils.ModHashes> entry : unknownMods.entrySet()) {
+            String fName = entry.getKey().getFileName().toString();
+            String fName2 = StringUtils.stripEnd(fName, ".disabled");
+            String sha1 = entry.getValue().sha1().toString();
+            long murmurHash = entry.getValue().murmur();
 
             long curseProject = -1;
             long curseFile = -1;
-            FileMetadata metadata = CurseMetadataCache.get().queryMetadata(String.valueOf(murmurHash));
+            FileMetadata metadata = lookups.get(String.valueOf(murmurHash));
             if (metadata != null) {
-                LOGGER.info(" Identified as {} {} {}", metadata.name(), metadata.curseProject(), metadata.curseFile());
+                LOGGER.info(" Identified {} as {} {} {}", fName, metadata.name(), metadata.curseProject(), metadata.curseFile());
                 curseProject = metadata.curseProject();
                 curseFile = metadata.curseFile();
             } else {
-                LOGGER.info(" Could not identify mod with hash lookup.");
+                LOGGER.info(" Could not identify {} with hash lookup.", fName);
             }
 
             ModOverrideState state = fName.endsWith(".disabled") ? ModOverrideState.ADDED_DISABLED : ModOverrideState.ADDED_ENABLED;
@@ -714,7 +741,7 @@ public class Instance {
                     fName2,
                     null,
                     state.enabled(),
-                    size,
+                    tryGetSize(entry.getKey()),
                     sha1,
                     murmurHash,
                     metadata != null ? metadata.toCurseInfo() : null
@@ -730,6 +757,32 @@ public class Instance {
         return mods;
     }
     
+    /**
+     * Kick off the metadata lookups {@link #getMods} will need for rich data, so they run
+     * together instead of one at a time as the list is built.
+     */
+    private void prefetchCurseMeta(@Nullable ModpackVersionModsManifest modsManifest, @Nullable InstanceModifications modifications) {
+        List<String> murmurs = new ArrayList<>();
+        for (ModpackVersionManifest.ModpackFile file : versionManifest.getFiles()) {
+            if (!isInModPath(file.getPath()) || !isMod(file.getName())) continue;
+            if (modsManifest != null && modsManifest.getMod(file.getId()) != null) continue;
+            if (file.getHashesOrNull() == null) continue;
+
+            murmurs.add(String.valueOf(file.getHashesOrNull().cfMurmur));
+        }
+        if (!murmurs.isEmpty()) {
+            CurseMetadataCache.get().queryMetadata(murmurs.toArray(String[]::new));
+        }
+
+        if (modifications != null) {
+            for (ModOverride override : modifications.getOverrides()) {
+                if (!override.getState().added() && !override.getState().updated()) continue;
+                // Result is cached, we only care about starting the request.
+                ModVersionCache.get().queryMod(override.getCurseProject());
+            }
+        }
+    }
+
     private static boolean isInModPath(String path) {
         return path.startsWith("./mods") || path.startsWith("mods/");
     }
@@ -1,6 +1,5 @@
 package dev.ftb.app.pack;
 
-import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import dev.ftb.app.AppMain;
 import dev.ftb.app.Constants;
@@ -17,7 +16,7 @@ import dev.ftb.app.minecraft.jsons.VersionListManifest;
 import dev.ftb.app.minecraft.jsons.VersionManifest;
 import dev.ftb.app.minecraft.jsons.VersionManifest.AssetIndex;
 import dev.ftb.app.storage.settings.Settings;
-import dev.ftb.app.util.StreamGobblerLog;
+import dev.ftb.app.util.StreamGobbler;
 import net.covers1624.jdkutils.JavaInstall;
 import net.covers1624.jdkutils.JavaVersion;
 import net.covers1624.jdkutils.JdkInstallationManager;
@@ -38,12 +37,15 @@ import org.jspecify.annotations.Nullable;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.io.PrintStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -76,6 +78,9 @@ public class InstanceLauncher {
     private Process process;
     @Nullable
     private LogThread logThread;
+    // The log of the current or most recent run, kept after exit so it can still be paged through.
+    @Nullable
+    private SessionLog sessionLog;
 
     private boolean forceStopped;
 
@@ -175,33 +180,34 @@ public class InstanceLauncher {
                 setPhase(Phase.STARTED);
 
                 // Start up the logging threads.
-                logThread = new LogThread(IOUtils.makeParents(instance.getDir().resolve("logs/console.log")));
+                sessionLog = SessionLog.open(IOUtils.makeParents(instance.getDir().resolve("logs/console.log")));
+                logThread = new LogThread(sessionLog);
                 Logger logger = LogManager.getLogger("Minecraft");
-                StreamGobblerLog stdoutGobbler = new StreamGobblerLog()
+                StreamGobbler stdoutGobbler = new StreamGobbler()
                         .setName("Instance STDOUT log Gobbler")
                         .setInput(process.getInputStream())
                         .setOutput(message -> {
                             logThread.bufferMessage(message);
                             logger.info(MINECRAFT, message);
                         });
-                StreamGobblerLog stderrGobbler = new StreamGobblerLog()
+                StreamGobbler stderrGobbler = new StreamGobbler()
                         .setName("Instance STDERR log Gobbler")
                         .setInput(process.getErrorStream())
                         .setOutput(message -> {
                             logThread.bufferMessage(message);
                             logger.error(MINECRAFT, message);
                         });
+                logThread.addStopTarget(stdoutGobbler);
+                logThread.addStopTarget(stderrGobbler);
+
                 stdoutGobbler.start();
                 stderrGobbler.start();
                 logThread.start();
 
-                logThread.addStopTarget(stdoutGobbler);
-                logThread.addStopTarget(stderrGobbler);
-
                 process.onExit().thenRunAsync(() -> {
-                    // Not strictly necessary, but exits the log threads faster.
-                    stdoutGobbler.stop();
-                    stderrGobbler.stop();
+                    // Let the gobblers drain what's left in the pipes, but don't wait on any child process still holding them open.
+                    stdoutGobbler.stop(1, TimeUnit.SECONDS);
+                    stderrGobbler.stop(1, TimeUnit.SECONDS);
                     logThread.stop = true;
                     logThread.interrupt();
                 });
@@ -268,6 +274,13 @@ public class InstanceLauncher {
         setPhase(Phase.NOT_STARTED);
     }
 
+    /**
+     * @return The console log of the current or most recent run, {@code null} if the instance has not been run.
+     */
+    public @Nullable SessionLog getSessionLog() {
+        return sessionLog;
+    }
+
     public void setLogStreaming(boolean state) {
         if (logThread == null) return;
 
@@ -969,58 +982,45 @@ public class InstanceLauncher {
          * The time in milliseconds between bursts of logging output.
          */
         private static final long INTERVAL = 250;
+        /**
+         * The maximum number of lines sent to the UI in a single message.
+         */
+        private static final int MAX_BATCH = 10000;
+        /**
+         * The maximum time in milliseconds to wait for the gobblers to finish once the process has exited.
+         */
+        private static final long GOBBLER_TIMEOUT = 5000;
 
-        private boolean streamingEnabled = true;
+        private volatile boolean streamingEnabled = true;
 
-        private boolean stop = false;
-        private final List<String> pendingMessages = new ArrayList<>(100);
-        @Nullable
-        private final PrintStream pw;
-        private List<StreamGobblerLog> gobblers = new ArrayList<>();
-        private int linesWritten = 0;
+        private volatile boolean stop = false;
+        private final SessionLog log;
+        private final List<StreamGobbler> gobblers = new ArrayList<>();
 
-        public LogThread(Path path) {
+        public LogThread(SessionLog log) {
             super("Instance Logging Thread");
             setDaemon(true);
+            this.log = log;
+        }
 
-            PrintStream pw = null;
+        @Override
+        public void run() {
             try {
-                pw = new PrintStream(Files.newOutputStream(path), true);
-            } catch (IOException ex) {
-                LOGGER.error("Failed to create console log for instance {}.", instance.getUuid(), ex);
+                pump();
+            } catch (Throwable ex) {
+                // Never die silently, producers would block forever on a full ring.
+                LOGGER.error("Instance logging thread failed.", ex);
+            } finally {
+                finish();
             }
-            this.pw = pw;
         }
 
-        @Override
         @SuppressWarnings ("BusyWait")
-        public void run() {
+        private void pump() {
             while (!stop && phase == Phase.STARTED) {
-                if (!pendingMessages.isEmpty()) {
-                    synchronized (pendingMessages) {
-                        List<String> toSend = ImmutableList.copyOf(pendingMessages);
-                        pendingMessages.clear();
-                        if (DEBUG) {
-                            LOGGER.info("Flushing {} messages.", toSend.size());
-                        }
+                // Keep going without sleeping if we couldn't drain everything in one go.
+                if (flush() == MAX_BATCH) continue;
 
-                        // Solution for https://github.com/FTBTeam/FTB-App/issues/1296
-                        // After 100k lines, just stop sending the logs and terminate the logging thread along
-                        // with the stream gobblers to avoid accumulating too much data in memory.
-                        if (linesWritten > 100_000) {
-                            WebSocketHandler.sendMessage(new LaunchInstanceData.Logs(instance.getUuid(), List.of("[... Log truncated ...]")));
-                            // Now we need to kill this thread and the gobblers.
-                            stop = true;
-                            for (StreamGobblerLog gobbler : gobblers) {
-                                gobbler.stop();
-                            }
-                            this.interrupt();
-                            break;
-                        }
-
-                        WebSocketHandler.sendMessage(new LaunchInstanceData.Logs(instance.getUuid(), toSend));
-                    }
-                }
                 try {
                     Thread.sleep(INTERVAL);
                 } catch (InterruptedException ignored) {
@@ -1031,33 +1031,67 @@ public class InstanceLauncher {
                     }
                 }
             }
-            if (pw != null) {
-                pw.close();
+            // The process has exited, keep draining whilst the gobblers read what's left in the pipes.
+            CompletableFuture<Void> gobbled = CompletableFuture.allOf(gobblers.stream()
+                    .map(StreamGobbler::onFinished)
+                    .toArray(CompletableFuture[]::new));
+            long deadline = System.currentTimeMillis() + GOBBLER_TIMEOUT;
+            while (!gobbled.isDone() && System.currentTimeMillis() < deadline) {
+                if (flush() == MAX_BATCH) continue;
+
+                try {
+                    gobbled.get(INTERVAL, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException | ExecutionException | TimeoutException ignored) {
+                }
+            }
+            if (!gobbled.isDone()) {
+                LOGGER.warn("Timed out waiting for instance output to finish, the end of the log may be missing.");
             }
         }
 
-        private void bufferMessage(String message) {
-            if (streamingEnabled) {
-                synchronized (pendingMessages) {
-                    pendingMessages.add(message);
-                    linesWritten ++;
+        private void finish() {
+            long start = log.lineCount();
+            log.close();
+            // Send anything which was left over when we stopped.
+            long end = log.lineCount();
+            if (streamingEnabled && end > start) {
+                try {
+                    SessionLog.Page page = log.read(start, (int) (end - start));
+                    WebSocketHandler.sendMessage(new LaunchInstanceData.Logs(instance.getUuid(), page.start(), page.lines()));
+                } catch (IOException | RuntimeException ex) {
+                    LOGGER.warn("Failed to read remaining log lines.", ex);
                 }
             }
-            if (pw != null) {
-                pw.println(message);
+        }
+
+        private int flush() {
+            long start = log.lineCount();
+            List<String> lines = log.drain(MAX_BATCH);
+            if (lines.isEmpty()) return 0;
+
+            if (DEBUG) {
+                LOGGER.info("Flushing {} messages.", lines.size());
+            }
+            if (streamingEnabled) {
+                try {
+                    WebSocketHandler.sendMessage(new LaunchInstanceData.Logs(instance.getUuid(), start, lines));
+                } catch (Throwable ex) {
+                    // The lines are already on disk, the UI can page them back.
+                    LOGGER.warn("Failed to send instance logs.", ex);
+                }
             }
+            return lines.size();
+        }
+
+        private void bufferMessage(String message) {
+            log.append(message);
         }
 
         public void setStreamingEnabled(boolean state) {
             streamingEnabled = state;
-            if (!state) {
-                synchronized (pendingMessages) {
-                    pendingMessages.clear();
-                }
-            }
         }
 
-        public void addStopTarget(StreamGobblerLog stdoutGobbler) {
+        public void addStopTarget(StreamGobbler stdoutGobbler) {
             gobblers.add(stdoutGobbler);
         }
     }
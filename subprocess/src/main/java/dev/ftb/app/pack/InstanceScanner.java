@@ -1,37 +1,40 @@
 package dev.ftb.app.pack;
 
 import com.electronwill.nightconfig.core.UnmodifiableConfig;
-import com.electronwill.nightconfig.core.file.FileConfig;
+import com.electronwill.nightconfig.toml.TomlParser;
 import com.google.common.collect.HashMultimap;
-import com.google.common.collect.Multimap;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonPrimitive;
+import com.google.common.collect.Multimaps;
+import com.google.common.collect.SetMultimap;
+import com.google.gson.*;
 import dev.ftb.app.data.modpack.ModpackVersionManifest;
 import dev.ftb.app.data.modpack.ModpackVersionManifest.ModpackFile;
+import dev.ftb.app.install.FileHashCache;
+import dev.ftb.app.pack.ModScanCache.ScanResult;
 import net.covers1624.quack.gson.JsonUtils;
-import net.covers1624.quack.io.IOUtils;
+import net.covers1624.quack.util.MultiHasher.HashFunc;
 import net.covers1624.quack.util.SneakyUtils;
 import net.covers1624.quack.util.SneakyUtils.ThrowingConsumer;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.IOException;
-import java.nio.file.FileSystem;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 public class InstanceScanner {
 
     private static final Logger LOGGER = LogManager.getLogger();
 
     private static final List<String> LJF_CLASSES = List.of(
-            "/net/minecraftforge/lex/legacyjavafixer/LegacyJavaFixer.class"
+            "net/minecraftforge/lex/legacyjavafixer/LegacyJavaFixer.class"
     );
 
     private static final List<String> SCRIPTS_DIRS = List.of(
@@ -46,9 +49,10 @@ public class InstanceScanner {
 
     private final Set<Path> invalidSizedMods = Collections.newSetFromMap(new ConcurrentHashMap<>());
     private final Set<Path> invalidSizedScripts = Collections.newSetFromMap(new ConcurrentHashMap<>());
-    private final Multimap<String, Path> foundMods = HashMultimap.create();
+    // Filled from a parallel walk.
+    private final SetMultimap<String, Path> foundMods = Multimaps.synchronizedSetMultimap(HashMultimap.create());
 
-    private boolean hasLegacyJavaFixer;
+    private volatile boolean hasLegacyJavaFixer;
 
     public InstanceScanner(Path instanceDir, ModpackVersionManifest manifest, Instance instance) {
         this.instanceDir = instanceDir;
@@ -120,6 +124,7 @@ public class InstanceScanner {
         } catch (IOException ex) {
             LOGGER.warn("Failed to scan.", ex);
         }
+        ModScanCache.get().saveIfDirty();
     }
     
     public boolean shouldScan() {
@@ -141,67 +146,92 @@ public class InstanceScanner {
     }
 
     private void investigateMod(Path mod) {
-        try (FileSystem fs = IOUtils.getJarFileSystem(mod, true)) {
-            if (!hasLegacyJavaFixer) {
-                for (String ljfClass : LJF_CLASSES) {
-                    if (Files.exists(fs.getPath(ljfClass))) {
-                        hasLegacyJavaFixer = true;
-                        break;
-                    }
-                }
+        try {
+            String sha1 = FileHashCache.get().hash(mod, HashFunc.SHA1).toString();
+            ModScanCache cache = ModScanCache.get();
+            ScanResult result = cache.find(sha1);
+            if (result == null) {
+                result = scanJar(mod);
+                cache.put(sha1, result);
             }
-            Path modsToml = fs.getPath("/META-INF/mods.toml");
-            Path mcmodInfo = fs.getPath("/mcmod.info");
-            Path fabricModJson = fs.getPath("/fabric.mod.json");
-            if (Files.exists(modsToml)) {
-                handleModsToml(mod, modsToml);
-            } else if (Files.exists(mcmodInfo)) {
-                handleMCModInfo(mod, mcmodInfo);
-            } else if (Files.exists(fabricModJson)) {
-                handleFabricModJson(mod, fabricModJson);
+            if (result.legacyJavaFixer()) {
+                hasLegacyJavaFixer = true;
+            }
+            for (String modId : result.modIds()) {
+                foundMods.put(modId, mod);
             }
         } catch (Throwable ex) {
             LOGGER.warn("Failed to scan mod '{}'.", mod, ex);
         }
     }
 
-    private void handleModsToml(Path mod, Path path) throws IOException {
-        try (FileConfig config = FileConfig.builder(path).build()) {
-            config.load();
-            List<UnmodifiableConfig> modConfigs = config.get("mods");
-            if (modConfigs == null) return;
-
-            for (UnmodifiableConfig modConfig : modConfigs) {
-                String modId = modConfig.get("modId");
-                if (modId == null) continue;
+    // Only reads the zip central directory and the single metadata entry we need.
+    private static ScanResult scanJar(Path mod) throws IOException {
+        try (ZipFile zip = new ZipFile(mod.toFile())) {
+            boolean legacyJavaFixer = false;
+            for (String ljfClass : LJF_CLASSES) {
+                if (zip.getEntry(ljfClass) != null) {
+                    legacyJavaFixer = true;
+                    break;
+                }
+            }
 
-                foundMods.put(modId, mod);
+            List<String> modIds = new ArrayList<>();
+            ZipEntry modsToml = zip.getEntry("META-INF/mods.toml");
+            ZipEntry mcmodInfo = zip.getEntry("mcmod.info");
+            ZipEntry fabricModJson = zip.getEntry("fabric.mod.json");
+            if (modsToml != null) {
+                handleModsToml(modIds, readEntry(zip, modsToml));
+            } else if (mcmodInfo != null) {
+                handleMCModInfo(modIds, readEntry(zip, mcmodInfo));
+            } else if (fabricModJson != null) {
+                handleFabricModJson(modIds, readEntry(zip, fabricModJson));
             }
+            return new ScanResult(List.copyOf(modIds), legacyJavaFixer);
+        }
+    }
+
+    private static String readEntry(ZipFile zip, ZipEntry entry) throws IOException {
+        try (InputStream is = zip.getInputStream(entry)) {
+            return new String(is.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static void handleModsToml(List<String> modIds, String toml) {
+        UnmodifiableConfig config = new TomlParser().parse(toml);
+        List<UnmodifiableConfig> modConfigs = config.get("mods");
+        if (modConfigs == null) return;
+
+        for (UnmodifiableConfig modConfig : modConfigs) {
+            String modId = modConfig.get("modId");
+            if (modId == null) continue;
+
+            modIds.add(modId);
         }
     }
 
-    private void handleMCModInfo(Path mod, Path path) throws IOException {
-        JsonElement element = JsonUtils.parseRaw(path);
+    private static void handleMCModInfo(List<String> modIds, String json) {
+        JsonElement element = JsonParser.parseString(json);
         if (element.isJsonArray()) {
             JsonArray array = element.getAsJsonArray();
             for (JsonElement elm : array) {
-                consumeMCModInfoEntry(mod, elm.getAsJsonObject());
+                consumeMCModInfoEntry(modIds, elm.getAsJsonObject());
             }
         } else {
-            consumeMCModInfoEntry(mod, element.getAsJsonObject());
+            consumeMCModInfoEntry(modIds, element.getAsJsonObject());
         }
     }
 
-    private void consumeMCModInfoEntry(Path mod, JsonObject obj) {
+    private static void consumeMCModInfoEntry(List<String> modIds, JsonObject obj) {
         JsonPrimitive primitive = JsonUtils.getAsPrimitiveOrNull(obj, "modid");
         if (primitive != null && primitive.isString()) {
-            foundMods.put(primitive.getAsString(), mod);
+            modIds.add(primitive.getAsString());
         }
     }
 
-    private void handleFabricModJson(Path mod, Path json) throws IOException {
-        JsonObject obj = JsonUtils.parseRaw(json).getAsJsonObject();
-        foundMods.put(JsonUtils.getString(obj, "id"), mod);
+    private static void handleFabricModJson(List<String> modIds, String json) {
+        JsonObject obj = JsonParser.parseString(json).getAsJsonObject();
+        modIds.add(JsonUtils.getString(obj, "id"));
     }
 
     private static void parallelWalk(Path dir, boolean nested, ThrowingConsumer<Path, Throwable> consumer) throws IOException {
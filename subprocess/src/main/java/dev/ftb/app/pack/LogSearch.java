@@ -0,0 +1,337 @@
+package dev.ftb.app.pack;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.regex.Pattern;
+
+import static java.lang.foreign.ValueLayout.JAVA_BYTE;
+
+/**
+ * Searches instance log files, such as {@code logs/console.log} and {@code logs/latest.log}.
+ * <p>
+ * Files are memory mapped and scanned in place. Plain text queries are matched against the raw bytes
+ * first, so only candidate lines are decoded onto the heap. Regex queries decode every line at the
+ * requested levels before matching. A sparse index of line offsets is kept for each file, so a page starting at any line can seek
+ * straight to it. Logs are append only, so the index is extended as the file grows and is only
+ * rebuilt when the file is replaced.
+ */
+public final class LogSearch {
+
+    // A byte offset is recorded every this many lines.
+    private static final int INDEX_INTERVAL = 1024;
+    // The most lines a single page will scan, a page may return fewer matches than requested.
+    private static final int MAX_SCAN_LINES = 2_000_000;
+    // Matched lines longer than this are truncated.
+    private static final int MAX_LINE_LENGTH = 8192;
+    // How far into a line to look for the level marker.
+    private static final int MAX_LEVEL_SCAN = 256;
+
+    private static final LogLevel[] LEVELS = LogLevel.values();
+
+    private static final Cache<Path, LineIndex> INDEXES = CacheBuilder.newBuilder()
+            .maximumSize(16)
+            .build();
+
+    private LogSearch() {
+    }
+
+    /**
+     * Search a log file.
+     *
+     * @param file  The log file.
+     * @param query The query.
+     * @return The page of results.
+     * @throws IOException If an IO error occurs.
+     */
+    public static Result search(Path file, Query query) throws IOException {
+        BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+        long size = attrs.size();
+        if (size == 0) return new Result(List.of(), -1, 0);
+
+        LineIndex index;
+        try {
+            index = INDEXES.get(file.toAbsolutePath().normalize(), LineIndex::new);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException(ex);
+        }
+
+        try (Arena arena = Arena.ofConfined();
+             FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MemorySegment segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, size, arena);
+
+            long totalLines;
+            long line;
+            long pos;
+            LogLevel level;
+            synchronized (index) {
+                index.update(segment, size, attrs);
+                // A final line without a terminator is still searchable, it just isn't indexed yet.
+                totalLines = index.lineCount + (index.indexedBytes < size ? 1 : 0);
+                if (query.startLine() >= totalLines) return new Result(List.of(), -1, totalLines);
+
+                int checkpoint = (int) (Math.max(0, query.startLine()) / INDEX_INTERVAL);
+                line = (long) checkpoint * INDEX_INTERVAL;
+                pos = index.offsets[checkpoint];
+                level = LEVELS[index.levels[checkpoint]];
+            }
+
+            Prefilter prefilter = Prefilter.of(query);
+            List<Match> matches = new ArrayList<>();
+            long scanned = 0;
+            while (pos < size) {
+                long end = lineEnd(segment, pos, size);
+                LogLevel parsed = parseLevel(segment, pos, end);
+                if (parsed != null) {
+                    level = parsed;
+                }
+
+                if (line >= query.startLine()) {
+                    if ((query.levels().isEmpty() || query.levels().contains(level))
+                        && (prefilter == null || prefilter.mayMatch(segment, pos, end))) {
+                        String text = decode(segment, pos, end);
+                        if (query.pattern() == null || query.pattern().matcher(text).find()) {
+                            if (text.length() > MAX_LINE_LENGTH) {
+                                text = text.substring(0, MAX_LINE_LENGTH);
+                            }
+                            matches.add(new Match(line, level, text));
+                        }
+                    }
+                    scanned++;
+                    if (matches.size() >= query.limit() || scanned >= MAX_SCAN_LINES) {
+                        return new Result(matches, end + 1 < size ? line + 1 : -1, totalLines);
+                    }
+                }
+                pos = end + 1;
+                line++;
+            }
+            return new Result(matches, -1, totalLines);
+        }
+    }
+
+    /**
+     * Find the end of the line starting at {@code pos}.
+     *
+     * @return The offset of the terminating {@code \n}, or {@code size} if there is none.
+     */
+    private static long lineEnd(MemorySegment segment, long pos, long size) {
+        while (pos < size && segment.get(JAVA_BYTE, pos) != '\n') {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static String decode(MemorySegment segment, long start, long end) {
+        if (end > start && segment.get(JAVA_BYTE, end - 1) == '\r') {
+            end--;
+        }
+        return new String(segment.asSlice(start, end - start).toArray(JAVA_BYTE), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parse the level from a line of the form {@code [thread/LEVEL] ...} or {@code [time] [thread/LEVEL] ...},
+     * matching how the UI classifies streamed log lines.
+     *
+     * @return The level, {@code null} if the line has no level marker and inherits the previous line's level.
+     */
+    @Nullable
+    private static LogLevel parseLevel(MemorySegment segment, long start, long end) {
+        if (end <= start || segment.get(JAVA_BYTE, start) != '[') return null;
+
+        long limit = Math.min(end, start + MAX_LEVEL_SCAN);
+        long slash = start + 1;
+        while (slash < limit && segment.get(JAVA_BYTE, slash) != '/') {
+            slash++;
+        }
+        if (slash == start + 1 || slash >= limit) return null;
+
+        long close = slash + 1;
+        while (close < limit && segment.get(JAVA_BYTE, close) != ']') {
+            close++;
+        }
+        if (close == slash + 1 || close >= limit) return null;
+
+        for (LogLevel level : LEVELS) {
+            if (equalsAscii(segment, slash + 1, close, level.name())) {
+                return level;
+            }
+        }
+        // Unknown levels are treated as info, the same as the UI.
+        return LogLevel.INFO;
+    }
+
+    private static boolean equalsAscii(MemorySegment segment, long start, long end, String str) {
+        if (end - start != str.length()) return false;
+        for (int i = 0; i < str.length(); i++) {
+            if (segment.get(JAVA_BYTE, start + i) != str.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * A byte level test for plain text queries, run before a line is decoded.
+     * <p>
+     * UTF-8 is self synchronizing, so a line contains the text only if it contains the text's bytes.
+     * Case-insensitive queries fold ASCII only. Any line with non-ASCII bytes is still a candidate, as
+     * Unicode case folding can match ASCII letters from other characters.
+     */
+    private static final class Prefilter {
+
+        private final byte[] needle;
+        private final boolean ignoreCase;
+
+        private Prefilter(byte[] needle, boolean ignoreCase) {
+            this.needle = needle;
+            this.ignoreCase = ignoreCase;
+        }
+
+        @Nullable
+        static Prefilter of(Query query) {
+            if (query.pattern() == null || query.literal() == null || query.literal().isEmpty()) return null;
+
+            byte[] needle = query.literal().getBytes(StandardCharsets.UTF_8);
+            boolean ignoreCase = (query.pattern().flags() & Pattern.CASE_INSENSITIVE) != 0;
+            if (ignoreCase) {
+                for (int i = 0; i < needle.length; i++) {
+                    // Case folding of non-ASCII text can't be done on bytes.
+                    if (needle[i] < 0) return null;
+                    needle[i] = toLowerAscii(needle[i]);
+                }
+            }
+            return new Prefilter(needle, ignoreCase);
+        }
+
+        /**
+         * @return If the line may match, {@code false} only if it definitely does not.
+         */
+        boolean mayMatch(MemorySegment segment, long start, long end) {
+            long last = end - needle.length;
+            for (long i = start; i < end; i++) {
+                byte b = segment.get(JAVA_BYTE, i);
+                if (ignoreCase) {
+                    if (b < 0) return true;
+                    b = toLowerAscii(b);
+                }
+                if (i <= last && b == needle[0] && matchesAt(segment, i)) return true;
+                if (!ignoreCase && i >= last) return false;
+            }
+            return false;
+        }
+
+        private boolean matchesAt(MemorySegment segment, long pos) {
+            for (int j = 1; j < needle.length; j++) {
+                byte b = segment.get(JAVA_BYTE, pos + j);
+                if (ignoreCase) {
+                    b = toLowerAscii(b);
+                }
+                if (b != needle[j]) return false;
+            }
+            return true;
+        }
+
+        private static byte toLowerAscii(byte b) {
+            return b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+        }
+    }
+
+    /**
+     * A sparse index of line start offsets for a single file, along with the level in effect at each one.
+     */
+    private static final class LineIndex {
+
+        private long[] offsets = new long[] { 0 };
+        private byte[] levels = new byte[] { (byte) LogLevel.INFO.ordinal() };
+        private long lineCount;
+        // Offset just past the last complete line indexed.
+        private long indexedBytes;
+        private LogLevel level = LogLevel.INFO;
+        private @Nullable Object fileKey;
+        private long created;
+
+        void update(MemorySegment segment, long size, BasicFileAttributes attrs) {
+            long created = attrs.creationTime().toMillis();
+            if (size < indexedBytes || !Objects.equals(fileKey, attrs.fileKey()) || created != this.created) {
+                // The file was replaced or truncated, start over.
+                offsets = new long[] { 0 };
+                levels = new byte[] { (byte) LogLevel.INFO.ordinal() };
+                lineCount = 0;
+                indexedBytes = 0;
+                level = LogLevel.INFO;
+                fileKey = attrs.fileKey();
+                this.created = created;
+            }
+
+            long pos = indexedBytes;
+            while (pos < size) {
+                long end = lineEnd(segment, pos, size);
+                if (end == size) break; // Incomplete line, index it once it's finished.
+
+                LogLevel parsed = parseLevel(segment, pos, end);
+                if (parsed != null) {
+                    level = parsed;
+                }
+                pos = end + 1;
+                lineCount++;
+                if (lineCount % INDEX_INTERVAL == 0) {
+                    int slot = (int) (lineCount / INDEX_INTERVAL);
+                    if (slot == offsets.length) {
+                        offsets = Arrays.copyOf(offsets, offsets.length * 2);
+                        levels = Arrays.copyOf(levels, levels.length * 2);
+                    }
+                    offsets[slot] = pos;
+                    levels[slot] = (byte) level.ordinal();
+                }
+            }
+            indexedBytes = pos;
+        }
+    }
+
+    public enum LogLevel {
+        TRACE,
+        DEBUG,
+        INFO,
+        WARN,
+        ERROR,
+        FATAL,
+    }
+
+    /**
+     * @param pattern   The pattern lines must contain a match for, {@code null} to match every line.
+     * @param literal   The plain text {@code pattern} searches for, {@code null} if it is a regex. Lets lines be
+     *                  rejected before they are decoded.
+     * @param levels    The levels to include, empty to include every level.
+     * @param startLine The line to start searching from.
+     * @param limit     The maximum number of matches to return.
+     */
+    public record Query(@Nullable Pattern pattern, @Nullable String literal, Set<LogLevel> levels, long startLine, int limit) { }
+
+    /**
+     * @param line  The line number, starting at 0.
+     * @param level The level of the line. Lines without a level marker, such as stack traces, inherit the level of the line before.
+     * @param text  The line.
+     */
+    public record Match(long line, LogLevel level, String text) { }
+
+    /**
+     * @param matches    The matches, in order.
+     * @param nextLine   The line to continue searching from for the next page, {@code -1} if the end of the file was reached.
+     * @param totalLines The number of lines in the file.
+     */
+    public record Result(List<Match> matches, long nextLine, long totalLines) { }
+}
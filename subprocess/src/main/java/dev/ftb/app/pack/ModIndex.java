@@ -0,0 +1,117 @@
+package dev.ftb.app.pack;
+
+import com.google.common.hash.HashCode;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import dev.ftb.app.util.HashingUtils;
+import dev.ftb.app.util.HashingUtils.ModHashes;
+import net.covers1624.quack.gson.JsonUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A persistent per-instance index of mod file hashes, stored in the instance meta folder.
+ * <p>
+ * Entries are keyed by file name and stamped with the file's size and modification time,
+ * only new or changed jars need to be hashed when building the mods list.
+ * <p>
+ * As with {@link dev.ftb.app.install.FileHashCache}, files modified within {@link #RACY_WINDOW}
+ * of being hashed are never recorded, as a subsequent write within the same timestamp granularity
+ * would not change their stamp.
+ */
+final class ModIndex {
+
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final Gson GSON = new Gson();
+    private static final Type TYPE = new TypeToken<Map<String, Entry>>() { }.getType();
+
+    public static final String FILE_NAME = "mod_index.json";
+    private static final long RACY_WINDOW = TimeUnit.SECONDS.toMillis(2);
+
+    private final Path file;
+    private final Map<String, Entry> entries;
+    private boolean dirty;
+
+    private ModIndex(Path file, Map<String, Entry> entries) {
+        this.file = file;
+        this.entries = entries;
+    }
+
+    static ModIndex load(Path metaPath) {
+        Path file = metaPath.resolve(FILE_NAME);
+        Map<String, Entry> entries = null;
+        if (Files.exists(file)) {
+            try {
+                entries = JsonUtils.parse(GSON, file, TYPE);
+            } catch (IOException | JsonParseException ex) {
+                LOGGER.warn("Failed to load mod index, rebuilding.", ex);
+            }
+        }
+        return new ModIndex(file, entries != null ? new HashMap<>(entries) : new HashMap<>());
+    }
+
+    /**
+     * Get the hashes for the given mod file, hashing it only if it is new or has changed.
+     *
+     * @param path The mod file.
+     * @return The hashes.
+     * @throws IOException If an IO error occurs.
+     */
+    ModHashes hash(Path path) throws IOException {
+        String name = path.getFileName().toString();
+        BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+        long mtime = attrs.lastModifiedTime().toMillis();
+
+        Entry entry = entries.get(name);
+        if (entry != null && entry.size == attrs.size() && entry.mtime == mtime) {
+            return new ModHashes(HashCode.fromString(entry.sha1), entry.murmur);
+        }
+
+        ModHashes hashes = HashingUtils.hashSha1AndMurmur(path);
+
+        // Re-read after hashing, if the file changed whilst we were reading it, don't record the result.
+        BasicFileAttributes after = Files.readAttributes(path, BasicFileAttributes.class);
+        if (after.size() == attrs.size() && after.lastModifiedTime().toMillis() == mtime
+            && System.currentTimeMillis() - mtime >= RACY_WINDOW) {
+            entries.put(name, new Entry(attrs.size(), mtime, hashes.sha1().toString(), hashes.murmur()));
+            dirty = true;
+        } else if (entries.remove(name) != null) {
+            dirty = true;
+        }
+        return hashes;
+    }
+
+    /**
+     * Remove any entries for files not in the given set.
+     *
+     * @param names The file names which still exist.
+     */
+    void retain(Set<String> names) {
+        if (entries.keySet().retainAll(names)) {
+            dirty = true;
+        }
+    }
+
+    void saveIfDirty() {
+        if (!dirty) return;
+        try {
+            JsonUtils.write(GSON, file, entries, TYPE);
+            dirty = false;
+        } catch (IOException ex) {
+            LOGGER.warn("Failed to save mod index.", ex);
+        }
+    }
+
+    private record Entry(long size, long mtime, String sha1, long murmur) { }
+}
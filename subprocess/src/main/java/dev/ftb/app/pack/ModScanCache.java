@@ -0,0 +1,114 @@
+package dev.ftb.app.pack;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import dev.ftb.app.AppMain;
+import net.covers1624.quack.gson.JsonUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A persistent cache of {@link InstanceScanner} results for mod jars, keyed by the jar's SHA1.
+ * <p>
+ * Jar SHA1s come from the {@link dev.ftb.app.install.FileHashCache}, so an unchanged jar
+ * (same size and mtime) is never reopened or re-hashed. As the key is content based, the
+ * same jar is only scanned once across every instance.
+ */
+final class ModScanCache {
+
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final Gson GSON = new Gson();
+    private static final Type TYPE = new TypeToken<Map<String, Entry>>() { }.getType();
+
+    // Entries not used in this long are dropped on load.
+    private static final long EXPIRY = TimeUnit.DAYS.toMillis(30);
+
+    @Nullable
+    private static ModScanCache instance;
+
+    private final Path file;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private volatile boolean dirty;
+
+    static synchronized ModScanCache get() {
+        if (instance == null) {
+            instance = new ModScanCache(AppMain.paths().workingDir().resolve(".mod_scan.json"));
+        }
+
+        return instance;
+    }
+
+    private ModScanCache(Path file) {
+        this.file = file;
+        if (Files.notExists(file)) return;
+
+        try {
+            Map<String, Entry> loaded = JsonUtils.parse(GSON, file, TYPE);
+            if (loaded != null) {
+                long now = System.currentTimeMillis();
+                loaded.forEach((k, v) -> {
+                    if (v != null && now - v.lastUsed < EXPIRY) {
+                        entries.put(k, v);
+                    }
+                });
+            }
+        } catch (IOException | JsonParseException ex) {
+            LOGGER.warn("Failed to load mod scan cache.", ex);
+        }
+    }
+
+    /**
+     * Find the cached scan result for the given jar hash.
+     *
+     * @param sha1 The jar's SHA1.
+     * @return The result, {@code null} if the jar has not been scanned.
+     */
+    @Nullable
+    ScanResult find(String sha1) {
+        Entry entry = entries.get(sha1);
+        if (entry == null) return null;
+
+        long now = System.currentTimeMillis();
+        if (now - entry.lastUsed > TimeUnit.DAYS.toMillis(1)) {
+            entries.replace(sha1, entry, new Entry(entry.modIds, entry.legacyJavaFixer, now));
+            dirty = true;
+        }
+        return new ScanResult(entry.modIds, entry.legacyJavaFixer);
+    }
+
+    void put(String sha1, ScanResult result) {
+        entries.put(sha1, new Entry(result.modIds(), result.legacyJavaFixer(), System.currentTimeMillis()));
+        dirty = true;
+    }
+
+    synchronized void saveIfDirty() {
+        if (!dirty) return;
+        dirty = false;
+        try {
+            JsonUtils.write(GSON, file, Map.copyOf(entries), TYPE);
+        } catch (IOException ex) {
+            LOGGER.warn("Failed to save mod scan cache.", ex);
+        }
+    }
+
+    /**
+     * The result of scanning a single mod jar.
+     *
+     * @param modIds          The mod ids declared by the jar.
+     * @param legacyJavaFixer If the jar contains LegacyJavaFixer.
+     */
+    record ScanResult(List<String> modIds, boolean legacyJavaFixer) { }
+
+    private record Entry(List<String> modIds, boolean legacyJavaFixer, long lastUsed) { }
+}
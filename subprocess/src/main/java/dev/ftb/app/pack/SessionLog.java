@@ -0,0 +1,386 @@
+package dev.ftb.app.pack;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import dev.ftb.app.util.MpscRingBuffer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jspecify.annotations.Nullable;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The console log for a single run of an instance.
+ * <p>
+ * Lines from the game's stdout and stderr are handed to a lock-free ring buffer. A single consumer
+ * drains the ring, appending the lines to {@code console.log} on disk. The consumer also records a
+ * sparse index of line byte offsets as it writes. Memory use therefore stays constant no matter how
+ * long the session runs, and any line range can still be read back with {@link #read(long, int)}.
+ * <p>
+ * If the ring fills, producers wait for the consumer to catch up. This pushes back on the game's
+ * output pipe instead of dropping lines.
+ * <p>
+ * Writes are buffered, the file is only flushed once {@link #FLUSH_INTERVAL} has passed, the buffer
+ * fills, a page is read, the session ends, or the app exits. The previous session's log is rotated
+ * to {@code console-<date>-<n>.log.gz} when a new session is opened.
+ */
+public final class SessionLog implements Closeable {
+
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    private static final int RING_CAPACITY = 1 << 16;
+    private static final int BUFFER_SIZE = 1024 * 1024;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final long FLUSH_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+    // The number of rotated logs kept per instance.
+    private static final int MAX_ARCHIVES = 10;
+    // A byte offset is recorded every this many lines.
+    private static final int INDEX_INTERVAL = 256;
+    private static final byte[] NEWLINE = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+
+    private static final Set<SessionLog> OPEN = ConcurrentHashMap.newKeySet();
+    // Single threaded, so two rotations in the same directory never compress the same archive at once.
+    private static final ExecutorService ARCHIVER = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+            .setNameFormat("Console Log Archiver")
+            .setDaemon(true)
+            .build()
+    );
+
+    private final Path file;
+    private final MpscRingBuffer<String> ring = new MpscRingBuffer<>(RING_CAPACITY);
+    private final @Nullable OutputStream out;
+    private volatile boolean closed;
+    // The number of appends in progress, close waits for these so none land in the ring after the final drain.
+    private final AtomicInteger appending = new AtomicInteger();
+
+    // Guards the index and counters below, written by the consumer, read by page requests.
+    private final Object indexLock = new Object();
+    private long[] index = new long[64];
+    private long lineCount;
+    private long bytesWritten;
+    // The number of lines known to be on disk.
+    private long flushedLines;
+    private long lastFlush = System.nanoTime();
+
+    private SessionLog(Path file) {
+        this.file = file;
+        OutputStream out = null;
+        try {
+            out = new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE);
+        } catch (IOException ex) {
+            LOGGER.error("Failed to create console log {}.", file, ex);
+        }
+        this.out = out;
+    }
+
+    /**
+     * Open a new session log, rotating any log left by the previous session.
+     *
+     * @param file The log file.
+     * @return The log.
+     */
+    public static SessionLog open(Path file) {
+        rotate(file);
+        SessionLog log = new SessionLog(file);
+        OPEN.add(log);
+        return log;
+    }
+
+    /**
+     * Flush every open session log to disk, called on exit.
+     */
+    public static void flushAll() {
+        for (SessionLog log : OPEN) {
+            synchronized (log.indexLock) {
+                log.flush();
+            }
+        }
+    }
+
+    /**
+     * Append a line to the log. Safe to call from any thread.
+     * <p>
+     * Blocks whilst the ring buffer is full. Does nothing once the log is closed.
+     *
+     * @param line The line, without line terminator.
+     */
+    public void append(String line) {
+        appending.incrementAndGet();
+        try {
+            if (closed) return;
+            while (!ring.offer(line)) {
+                if (closed) return;
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+            }
+        } finally {
+            appending.decrementAndGet();
+        }
+    }
+
+    /**
+     * Drain pending lines into the write buffer. Must only be called from a single consumer thread.
+     *
+     * @param max The maximum number of lines to drain.
+     * @return The lines drained, in order.
+     */
+    public List<String> drain(int max) {
+        List<String> lines = new ArrayList<>(Math.min(max, ring.size()));
+        ring.drain(lines::add, max);
+
+        synchronized (indexLock) {
+            for (String line : lines) {
+                if (lineCount % INDEX_INTERVAL == 0) {
+                    int slot = (int) (lineCount / INDEX_INTERVAL);
+                    if (slot == index.length) {
+                        index = Arrays.copyOf(index, index.length * 2);
+                    }
+                    index[slot] = bytesWritten;
+                }
+                byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+                write(bytes);
+                write(NEWLINE);
+                bytesWritten += bytes.length + NEWLINE.length;
+                lineCount++;
+            }
+            if (lineCount > flushedLines && System.nanoTime() - lastFlush >= FLUSH_INTERVAL) {
+                flush();
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * @return The number of lines drained to disk so far.
+     */
+    public long lineCount() {
+        synchronized (indexLock) {
+            return lineCount;
+        }
+    }
+
+    /**
+     * Read a range of lines back from disk.
+     *
+     * @param start The index of the first line.
+     * @param count The maximum number of lines to read.
+     * @return The page.
+     * @throws IOException If an IO error occurs.
+     */
+    public Page read(long start, int count) throws IOException {
+        long total;
+        long offset;
+        synchronized (indexLock) {
+            total = lineCount;
+            if (start < 0 || start >= total || count <= 0) return new Page(start, total, List.of());
+
+            if (Math.min(start + count, total) > flushedLines) {
+                flush();
+            }
+            offset = index[(int) (start / INDEX_INTERVAL)];
+        }
+
+        long end = Math.min(start + count, total);
+        List<String> lines = new ArrayList<>((int) (end - start));
+        // Lines are split on \n only, the same as the writer. A lone \r within a line must not be a line break.
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+             InputStream is = new BufferedInputStream(Channels.newInputStream(channel.position(offset)), READ_BUFFER_SIZE)) {
+            ByteArrayOutputStream lineBytes = new ByteArrayOutputStream();
+            long line = start - start % INDEX_INTERVAL;
+            int b;
+            while (line < end && (b = is.read()) != -1) {
+                if (b != '\n') {
+                    if (line >= start) {
+                        lineBytes.write(b);
+                    }
+                    continue;
+                }
+                if (line >= start) {
+                    lines.add(decodeLine(lineBytes));
+                    lineBytes.reset();
+                }
+                line++;
+            }
+        }
+        return new Page(start, total, lines);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        OPEN.remove(this);
+        // Any append which saw the log open finishes its offer before the final drain.
+        while (appending.get() != 0) {
+            Thread.onSpinWait();
+        }
+        // Anything left over is written to disk.
+        List<String> remaining;
+        do {
+            remaining = drain(RING_CAPACITY);
+        } while (!remaining.isEmpty());
+        synchronized (indexLock) {
+            flush();
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException ex) {
+                    LOGGER.warn("Failed to close console log {}.", file, ex);
+                }
+            }
+        }
+    }
+
+    private static String decodeLine(ByteArrayOutputStream lineBytes) {
+        byte[] bytes = lineBytes.toByteArray();
+        int len = bytes.length;
+        // Written with System.lineSeparator().
+        if (len > 0 && bytes[len - 1] == '\r') {
+            len--;
+        }
+        return new String(bytes, 0, len, StandardCharsets.UTF_8);
+    }
+
+    private void write(byte[] bytes) {
+        if (out == null) return;
+        try {
+            out.write(bytes);
+        } catch (IOException ex) {
+            LOGGER.warn("Failed to write console log {}.", file, ex);
+        }
+    }
+
+    // Must hold indexLock.
+    private void flush() {
+        lastFlush = System.nanoTime();
+        // Nothing is buffered, also stops us touching the stream once it's closed.
+        if (out == null || flushedLines == lineCount) return;
+        try {
+            out.flush();
+            flushedLines = lineCount;
+        } catch (IOException ex) {
+            LOGGER.warn("Failed to flush console log {}.", file, ex);
+        }
+    }
+
+    /**
+     * Move the previous session's log aside and compress it in the background.
+     */
+    private static void rotate(Path file) {
+        if (Files.notExists(file)) return;
+
+        Path dir = file.getParent();
+        String name = file.getFileName().toString();
+        String base = name.endsWith(".log") ? name.substring(0, name.length() - 4) : name;
+        try {
+            LocalDate date = LocalDate.ofInstant(Files.getLastModifiedTime(file).toInstant(), ZoneId.systemDefault());
+            Path archive;
+            int i = 1;
+            do {
+                archive = dir.resolve(base + "-" + date + "-" + i++ + ".log");
+            } while (Files.exists(archive) || Files.exists(gzipped(archive)));
+            Files.move(file, archive);
+        } catch (IOException ex) {
+            LOGGER.warn("Failed to rotate console log {}.", file, ex);
+            return;
+        }
+
+        ARCHIVER.execute(() -> compressArchives(dir, base));
+    }
+
+    private static void compressArchives(Path dir, String base) {
+        List<Path> archives = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.filter(e -> e.getFileName().toString().startsWith(base + "-")).forEach(archives::add);
+        } catch (IOException ex) {
+            LOGGER.warn("Failed to list console log archives in {}.", dir, ex);
+            return;
+        }
+
+        // Compress anything rotated but not yet compressed, including leftovers from an interrupted run.
+        for (ListIterator<Path> it = archives.listIterator(); it.hasNext(); ) {
+            Path archive = it.next();
+            String fileName = archive.getFileName().toString();
+            if (fileName.endsWith(".tmp")) {
+                // Left over from an interrupted compression, the source log is still there.
+                try {
+                    Files.deleteIfExists(archive);
+                } catch (IOException ignored) {
+                }
+                continue;
+            }
+            if (!fileName.endsWith(".log")) continue;
+
+            // Compress to a temp file, so a partial archive never sits under the final name.
+            Path dest = gzipped(archive);
+            Path tempFile = dest.resolveSibling(dest.getFileName() + ".tmp");
+            try {
+                try (OutputStream os = new GZIPOutputStream(Files.newOutputStream(tempFile), BUFFER_SIZE)) {
+                    Files.copy(archive, os);
+                }
+                Files.move(tempFile, dest, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException ex) {
+                LOGGER.warn("Failed to compress console log {}.", archive, ex);
+                try {
+                    Files.deleteIfExists(tempFile);
+                } catch (IOException ignored) {
+                }
+                continue;
+            }
+            try {
+                Files.delete(archive);
+            } catch (IOException ex) {
+                LOGGER.warn("Failed to delete console log {}.", archive, ex);
+            }
+            it.set(dest);
+        }
+
+        List<Path> compressed = archives.stream()
+                .filter(e -> e.getFileName().toString().endsWith(".log.gz"))
+                .sorted(Comparator.comparing(SessionLog::lastModified).reversed())
+                .toList();
+        for (Path old : compressed.subList(Math.min(MAX_ARCHIVES, compressed.size()), compressed.size())) {
+            try {
+                Files.delete(old);
+            } catch (IOException ex) {
+                LOGGER.warn("Failed to delete old console log {}.", old, ex);
+            }
+        }
+    }
+
+    private static Path gzipped(Path archive) {
+        return archive.resolveSibling(archive.getFileName() + ".gz");
+    }
+
+    private static long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException ex) {
+            return 0;
+        }
+    }
+
+    /**
+     * A range of lines from the log.
+     *
+     * @param start The index of the first line.
+     * @param total The total number of lines in the log.
+     * @param lines The lines.
+     */
+    public record Page(long start, long total, List<String> lines) { }
+}
@@ -0,0 +1,301 @@
+package dev.ftb.app.util;
+
+import com.google.common.hash.Hashing;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import dev.ftb.app.AppMain;
+import dev.ftb.app.Constants;
+import net.covers1624.quack.io.IOUtils;
+import net.covers1624.quack.net.HttpResponseException;
+import okhttp3.CacheControl;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jspecify.annotations.Nullable;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A disk backed response cache for modpacks API json.
+ * <p>
+ * Responses are kept fresh for their {@code Cache-Control: max-age}, after which they are served stale
+ * whilst being revalidated in the background for their {@code stale-while-revalidate} window. Outside of
+ * that, they are revalidated synchronously with {@code If-None-Match}/{@code If-Modified-Since}. If the
+ * API can't be reached, a stale response is preferred over failing.
+ * <p>
+ * The API does not always send caching headers, in which case conservative defaults are used.
+ * <p>
+ * Entries are stored gzipped, mod manifests with long version histories compress very well. A file's
+ * modification time doubles as its last use, entries unused for {@link #EXPIRY} are deleted on startup.
+ */
+public class ApiCache {
+
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final Gson GSON = new Gson();
+
+    // Used when the API sends no caching headers.
+    private static final long DEFAULT_MAX_AGE = TimeUnit.MINUTES.toMillis(5);
+    // How long past max-age a response is served immediately, whilst a background revalidation runs. Pack and mod
+    // manifests change rarely, but a user reopening the app a day later should not see day old data even for one view.
+    private static final long DEFAULT_STALE_WHILE_REVALIDATE = TimeUnit.HOURS.toMillis(1);
+    // Entries not used in this long are deleted on startup.
+    private static final long EXPIRY = TimeUnit.DAYS.toMillis(30);
+    private static final Pattern STALE_WHILE_REVALIDATE = Pattern.compile("stale-while-revalidate=(\\d+)");
+
+    @Nullable
+    private static ApiCache instance;
+
+    private final Path dir;
+    private final ExecutorService executor = ExecutorUtils.newIoExecutor("API Cache");
+    private final Map<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
+    public static synchronized ApiCache get() {
+        if (instance == null) {
+            instance = new ApiCache(AppMain.paths().workingDir().resolve(".api_cache"));
+        }
+
+        return instance;
+    }
+
+    private ApiCache(Path dir) {
+        this.dir = dir;
+        executor.execute(this::prune);
+    }
+
+    /**
+     * @return An executor suitable for running blocking API queries on.
+     */
+    public ExecutorService executor() {
+        return executor;
+    }
+
+    /**
+     * Fetch the given API url, using the cache where possible.
+     *
+     * @param url The url.
+     * @return The response body.
+     * @throws IOException If the request failed and no cached response exists.
+     */
+    public String fetch(String url) throws IOException {
+        String key = key(url);
+        Entry entry = load(key);
+        long now = System.currentTimeMillis();
+        if (entry != null) {
+            if (now < entry.meta.freshUntil) return entry.body;
+            if (now < entry.meta.staleUntil) {
+                // Serve stale, refresh for next time.
+                revalidate(url, key, entry);
+                return entry.body;
+            }
+        }
+
+        try {
+            return join(revalidate(url, key, entry));
+        } catch (IOException ex) {
+            if (entry == null) throw ex;
+            LOGGER.warn("Failed to revalidate {}, using stale response.", url, ex);
+            return entry.body;
+        }
+    }
+
+    /**
+     * Remove any cached response for the given url.
+     * <p>
+     * Used when a response was successful, but its content indicates an error.
+     *
+     * @param url The url.
+     */
+    public void invalidate(String url) {
+        try {
+            Files.deleteIfExists(dir.resolve(key(url)));
+        } catch (IOException ex) {
+            LOGGER.warn("Failed to invalidate cached response for {}.", url, ex);
+        }
+    }
+
+    private CompletableFuture<String> revalidate(String url, String key, @Nullable Entry entry) {
+        CompletableFuture<String> future = inFlight.get(key);
+        if (future != null) return future;
+
+        CompletableFuture<String> newFuture = new CompletableFuture<>();
+        future = inFlight.putIfAbsent(key, newFuture);
+        if (future != null) return future;
+
+        executor.execute(() -> {
+            try {
+                String body = request(url, key, entry);
+                inFlight.remove(key, newFuture);
+                newFuture.complete(body);
+            } catch (Throwable ex) {
+                inFlight.remove(key, newFuture);
+                newFuture.completeExceptionally(ex);
+            }
+        });
+        return newFuture;
+    }
+
+    private String request(String url, String key, @Nullable Entry entry) throws IOException {
+        LOGGER.info("Querying API: {}", url);
+        Request.Builder builder = new Request.Builder()
+                .url(url)
+                .header("User-Agent", Constants.USER_AGENT);
+        ModpackApiUtils.injectBearerHeader(builder);
+        if (entry != null) {
+            if (entry.meta.etag != null) {
+                builder.header("If-None-Match", entry.meta.etag);
+            }
+            if (entry.meta.lastModified != null) {
+                builder.header("If-Modified-Since", entry.meta.lastModified);
+            }
+        }
+
+        try (Response response = Constants.httpClient().newCall(builder.build()).execute()) {
+            if (response.code() == 304 && entry != null) {
+                store(key, newMeta(url, response, entry.meta), entry.body);
+                return entry.body;
+            }
+            if (!response.isSuccessful()) {
+                throw new HttpResponseException(response.code(), response.message());
+            }
+
+            ResponseBody body = Objects.requireNonNull(response.body());
+            String str = body.string();
+            if (!response.cacheControl().noStore()) {
+                store(key, newMeta(url, response, null), str);
+            }
+            return str;
+        }
+    }
+
+    private static Meta newMeta(String url, Response response, @Nullable Meta previous) {
+        CacheControl cacheControl = response.cacheControl();
+        long now = System.currentTimeMillis();
+        long maxAge = DEFAULT_MAX_AGE;
+        long staleWhileRevalidate = DEFAULT_STALE_WHILE_REVALIDATE;
+        if (cacheControl.noCache()) {
+            maxAge = 0;
+            staleWhileRevalidate = 0;
+        } else if (cacheControl.maxAgeSeconds() != -1) {
+            maxAge = TimeUnit.SECONDS.toMillis(cacheControl.maxAgeSeconds());
+        }
+        String header = response.header("Cache-Control");
+        if (header != null) {
+            Matcher matcher = STALE_WHILE_REVALIDATE.matcher(header);
+            if (matcher.find()) {
+                staleWhileRevalidate = TimeUnit.SECONDS.toMillis(Long.parseLong(matcher.group(1)));
+            }
+        }
+
+        // A 304 may omit validators, keep the ones we had.
+        String etag = response.header("ETag", previous != null ? previous.etag : null);
+        String lastModified = response.header("Last-Modified", previous != null ? previous.lastModified : null);
+        return new Meta(url, etag, lastModified, now + maxAge, now + maxAge + staleWhileRevalidate);
+    }
+
+    @Nullable
+    private Entry load(String key) {
+        Path file = dir.resolve(key);
+        if (Files.notExists(file)) return null;
+
+        try {
+            long now = System.currentTimeMillis();
+            if (now - Files.getLastModifiedTime(file).toMillis() > TimeUnit.DAYS.toMillis(1)) {
+                // Mark as used, so it isn't pruned.
+                Files.setLastModifiedTime(file, FileTime.fromMillis(now));
+            }
+            byte[] bytes = Files.readAllBytes(file);
+            if (bytes.length >= 2 && (bytes[0] & 0xFF) == 0x1F && (bytes[1] & 0xFF) == 0x8B) {
+                try (InputStream is = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+                    bytes = is.readAllBytes();
+                }
+            }
+            String str = new String(bytes, StandardCharsets.UTF_8);
+            int idx = str.indexOf('\n');
+            if (idx == -1) throw new IOException("Missing header.");
+
+            Meta meta = GSON.fromJson(str.substring(0, idx), Meta.class);
+            return new Entry(meta, str.substring(idx + 1));
+        } catch (IOException | JsonParseException ex) {
+            LOGGER.warn("Failed to read cached API response {}.", file, ex);
+            return null;
+        }
+    }
+
+    private void store(String key, Meta meta, String body) {
+        Path file = dir.resolve(key);
+        Path tempFile = dir.resolve(key + ".tmp");
+        try {
+            try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(IOUtils.makeParents(tempFile))), StandardCharsets.UTF_8)) {
+                writer.write(GSON.toJson(meta));
+                writer.write('\n');
+                writer.write(body);
+            }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            LOGGER.warn("Failed to store cached API response for {}.", meta.url, ex);
+        }
+    }
+
+    private void prune() {
+        if (Files.notExists(dir)) return;
+
+        long now = System.currentTimeMillis();
+        int pruned = 0;
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                try {
+                    if (now - Files.getLastModifiedTime(file).toMillis() > EXPIRY) {
+                        Files.deleteIfExists(file);
+                        pruned++;
+                    }
+                } catch (IOException ex) {
+                    LOGGER.warn("Failed to prune cached API response {}.", file, ex);
+                }
+            }
+        } catch (IOException ex) {
+            LOGGER.warn("Failed to prune API cache.", ex);
+        }
+        if (pruned > 0) {
+            LOGGER.info("Pruned {} unused cached API responses.", pruned);
+        }
+    }
+
+    private static String key(String url) {
+        // Private packs depend on who is asking, never share responses between tokens.
+        String token = ModpackApiUtils.API_TOKEN != null ? ModpackApiUtils.API_TOKEN : "";
+        return Hashing.sha256().hashString(url + "\n" + token, StandardCharsets.UTF_8) + ".json";
+    }
+
+    private static String join(CompletableFuture<String> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted whilst querying API.");
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof IOException ioEx) throw ioEx;
+            if (cause instanceof RuntimeException rtEx) throw rtEx;
+            throw new IOException(cause);
+        }
+    }
+
+    private record Meta(String url, @Nullable String etag, @Nullable String lastModified, long freshUntil, long staleUntil) { }
+
+    private record Entry(Meta meta, String body) { }
+}
@@ -1,5 +1,9 @@
 package dev.ftb.app.util;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.Striped;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.gson.Gson;
 import com.google.gson.JsonParseException;
 import com.google.gson.reflect.TypeToken;
@@ -9,7 +13,9 @@ import dev.ftb.app.data.mod.CurseMetadata;
 import dev.ftb.app.data.mod.ModManifest;
 import dev.ftb.app.data.modpack.ModpackVersionModsManifest;
 import net.covers1624.quack.gson.JsonUtils;
+import net.covers1624.quack.io.IOUtils;
 import net.covers1624.quack.net.DownloadAction;
+import net.covers1624.quack.net.HttpResponseException;
 import net.covers1624.quack.net.okhttp.OkHttpDownloadAction;
 import okhttp3.MediaType;
 import okhttp3.Request;
@@ -18,53 +24,90 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.jspecify.annotations.Nullable;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.StringWriter;
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.Lock;
 
+/**
+ * Caches CurseForge file metadata looked up by murmur hash.
+ * <p>
+ * Lookups are persisted to an append-only file of json lines, written behind on a timer
+ * so concurrent lookups never wait on disk. Later lines replace earlier ones, the file is
+ * compacted once it grows well past the number of live entries, checked on load and after each write.
+ * <p>
+ * Hashes the API does not know about are remembered in memory for {@link #NEGATIVE_TTL},
+ * they are never persisted.
+ */
 public class CurseMetadataCache {
     private static final Gson GSON = new Gson();
     private static final Logger LOGGER = LogManager.getLogger();
-    private static final Type TYPE = new TypeToken<Map<String, FileMetadata>>() { }.getType();
+    private static final Type LEGACY_TYPE = new TypeToken<Map<String, FileMetadata>>() { }.getType();
+
+    private static final int MAX_ENTRIES = 100_000;
+    private static final long NEGATIVE_TTL = TimeUnit.HOURS.toMillis(1);
+    private static final long FLUSH_INTERVAL = 5;
+    // Compact once the file has this many more lines than live entries.
+    private static final int COMPACT_SLACK = 1000;
+
+    private static final ScheduledExecutorService FLUSH_EXECUTOR = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+            .setNameFormat("CurseMetadataCache Flush")
+            .setDaemon(true)
+            .build()
+    );
 
     @Nullable
     private static CurseMetadataCache instance;
     
-    public static CurseMetadataCache get() {
+    public static synchronized CurseMetadataCache get() {
         if (instance == null) {
-            instance = new CurseMetadataCache(AppMain.paths().workingDir().resolve(".curse_meta.json"));
+            Path workingDir = AppMain.paths().workingDir();
+            instance = new CurseMetadataCache(workingDir.resolve(".curse_meta.jsonl"), workingDir.resolve(".curse_meta.json"));
         }
         
         return instance;
     }
+
+    /**
+     * Write any pending lookups to disk, if the cache has been loaded.
+     */
+    public static synchronized void flushIfLoaded() {
+        if (instance != null) {
+            instance.flush();
+        }
+    }
     
     private final Path file;
-    private final Map<String, FileMetadata> metadata;
+    private final Cache<String, FileMetadata> metadata = CacheBuilder.newBuilder()
+            .maximumSize(MAX_ENTRIES)
+            .build();
+    private final Cache<String, Boolean> failedCache = CacheBuilder.newBuilder()
+            .expireAfterWrite(NEGATIVE_TTL, TimeUnit.MILLISECONDS)
+            .maximumSize(MAX_ENTRIES)
+            .build();
+    private final Striped<Lock> locks = Striped.lock(64);
 
-    // Cache per-run of failed requests to make things a tiny bit snappier.
-    private final Set<String> failedCache = ConcurrentHashMap.newKeySet();
+    private final Queue<FileMetadata> pending = new ConcurrentLinkedQueue<>();
+    private final Object writeLock = new Object();
+    private int fileLines;
 
-    private CurseMetadataCache(Path file) {
+    private CurseMetadataCache(Path file, Path legacyFile) {
         this.file = file;
-        Map<String, FileMetadata> metadata = null;
         if (Files.exists(file)) {
-            try {
-                metadata = JsonUtils.parse(GSON, file, TYPE);
-            } catch (IOException | JsonParseException ex) {
-                LOGGER.error("Failed to load storage.", ex);
-            }
+            load();
+        } else if (Files.exists(legacyFile)) {
+            migrate(legacyFile);
         }
-
-        if (metadata == null) {
-            metadata = new HashMap<>();
-        }
-
-        this.metadata = metadata;
+        FLUSH_EXECUTOR.scheduleWithFixedDelay(this::flush, FLUSH_INTERVAL, FLUSH_INTERVAL, TimeUnit.SECONDS);
     }
 
     public @Nullable CurseMetadata getCurseMeta(ModpackVersionModsManifest.@Nullable Mod mod, String murmur) {
@@ -124,38 +167,42 @@ public class CurseMetadataCache {
         FileMetadata metadata = findMetadata(murmurHash);
         if (metadata != null) return metadata;
 
-        if (failedCache.contains(murmurHash)) return null;
+        if (isFailed(murmurHash)) return null;
 
-        synchronized (murmurHash.intern()) {
+        Lock lock = locks.get(murmurHash);
+        lock.lock();
+        try {
             metadata = findMetadata(murmurHash);
             if (metadata != null) return metadata;
+            if (isFailed(murmurHash)) return null;
 
-            metadata = query(murmurHash);
-            if (metadata == null) {
-                failedCache.add(murmurHash);
+            try {
+                metadata = query(murmurHash);
+            } catch (IOException ex) {
+                // The request failed, we don't know if the hash exists. Don't remember it as unknown.
+                LOGGER.warn("Failed to query metadata for {}", murmurHash, ex);
+                return null;
             }
-            synchronized (this.metadata) {
-                this.metadata.put(murmurHash, metadata);
-                save();
+            if (metadata == null) {
+                failedCache.put(murmurHash, Boolean.TRUE);
+            } else {
+                store(murmurHash, metadata);
             }
             return metadata;
+        } finally {
+            lock.unlock();
         }
     }
     
-    public synchronized Map<String, FileMetadata> queryMetadata(String... murmurHashes) {
+    public Map<String, FileMetadata> queryMetadata(String... murmurHashes) {
         var queryManifestData = new HashMap<String, FileMetadata>();
+        // Packs often list the same jar more than once, only ask for each hash once.
+        var toQuery = new LinkedHashSet<String>();
         for (var hash : murmurHashes) {
             var meta = findMetadata(hash);
             if (meta != null) {
                 queryManifestData.put(hash, meta);
-            }
-        }
-        
-        var toQuery = new ArrayList<String>();
-        for (var hash : murmurHashes) {
-            if (failedCache.contains(hash)) continue;
-
-            if (!queryManifestData.containsKey(hash) && !failedCache.contains(hash)) {
+            } else if (!isFailed(hash) && !hash.equals("-1")) {
                 toQuery.add(hash);
             }
         }
@@ -167,33 +214,32 @@ public class CurseMetadataCache {
         var client = Constants.httpClient();
         var request = client.newCall(new Request.Builder()
             .url(Constants.FTB_MODPACKS_API + "/mod/lookup/hashes")
-            .post(RequestBody.create(new Gson().toJson(Map.of("hashes", toQuery)), MediaType.parse("application/json")))
+            .post(RequestBody.create(GSON.toJson(Map.of("hashes", toQuery)), MediaType.parse("application/json")))
             .build());
         
-        var mutated = false;
         try (var response = request.execute()) {
             var responseBody = response.body();
             if (!response.isSuccessful() || responseBody == null) {
                 LOGGER.error("Failed to lookup mod hashes: {}", response.message());
-                return null;
+                return queryManifestData;
             }
 
-            var responseJson = new Gson().fromJson(responseBody.string(), ModsLookupResponse.class);
+            var responseJson = GSON.fromJson(responseBody.string(), ModsLookupResponse.class);
             for (var lookup : responseJson.data()) {
-                queryManifestData.put(String.valueOf(lookup.murmurHash()), lookup);
-                synchronized (this.metadata) {
-                    this.metadata.put(String.valueOf(lookup.murmurHash()), lookup);
-                    mutated = true;
+                String hash = String.valueOf(lookup.murmurHash());
+                queryManifestData.put(hash, lookup);
+                store(hash, lookup);
+            }
+            // The API answered, anything it didn't return is unknown to it.
+            for (var hash : toQuery) {
+                if (!queryManifestData.containsKey(hash)) {
+                    failedCache.put(hash, Boolean.TRUE);
                 }
             }
         } catch (Exception e) {
             LOGGER.error("Failed to create HTTP client for mod data lookup.", e);
         }
         
-        if (mutated) {
-            save();
-        }
-        
         return queryManifestData;
     }
 
@@ -204,43 +250,147 @@ public class CurseMetadataCache {
      * @return The metadata. {@code null} if no metadata exists already.
      */
     public @Nullable FileMetadata findMetadata(String sha1) {
-        return metadata.get(sha1);
+        return metadata.getIfPresent(sha1);
+    }
+
+    private boolean isFailed(String murmurHash) {
+        return failedCache.getIfPresent(murmurHash) != null;
+    }
+
+    private void store(String murmurHash, FileMetadata meta) {
+        metadata.put(murmurHash, meta);
+        pending.add(meta);
     }
 
-    private void save() {
+    private void load() {
+        int lines = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) continue;
+                lines++;
+                try {
+                    FileMetadata meta = GSON.fromJson(line, FileMetadata.class);
+                    if (meta != null) {
+                        metadata.put(String.valueOf(meta.murmurHash()), meta);
+                    }
+                } catch (JsonParseException ex) {
+                    // Most likely a torn write from a crash, skip it.
+                    LOGGER.warn("Skipping corrupt metadata cache line.", ex);
+                }
+            }
+        } catch (IOException ex) {
+            LOGGER.error("Failed to load storage.", ex);
+        }
+        synchronized (writeLock) {
+            fileLines = lines;
+            if (fileLines > metadata.size() + COMPACT_SLACK) {
+                compact();
+            }
+        }
+    }
+
+    private void migrate(Path legacyFile) {
+        try {
+            Map<String, FileMetadata> legacy = JsonUtils.parse(GSON, legacyFile, LEGACY_TYPE);
+            if (legacy != null) {
+                legacy.forEach((k, v) -> {
+                    // The old format stored failed lookups as null.
+                    if (v != null) {
+                        metadata.put(k, v);
+                    }
+                });
+            }
+        } catch (IOException | JsonParseException ex) {
+            LOGGER.error("Failed to load legacy storage.", ex);
+        }
+        synchronized (writeLock) {
+            compact();
+        }
+        try {
+            Files.deleteIfExists(legacyFile);
+        } catch (IOException ex) {
+            LOGGER.warn("Failed to delete legacy storage.", ex);
+        }
+    }
+
+    private void flush() {
+        synchronized (writeLock) {
+            if (pending.isEmpty()) return;
+
+            try (BufferedWriter writer = Files.newBufferedWriter(IOUtils.makeParents(file), StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                FileMetadata meta;
+                while ((meta = pending.poll()) != null) {
+                    writer.write(GSON.toJson(meta));
+                    writer.write('\n');
+                    fileLines++;
+                }
+            } catch (IOException ex) {
+                LOGGER.error("Failed to save storage.", ex);
+            }
+
+            if (fileLines > metadata.size() + COMPACT_SLACK) {
+                compact();
+            }
+        }
+    }
+
+    // Must hold writeLock.
+    private void compact() {
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
         try {
-            synchronized (metadata) {
-                JsonUtils.write(GSON, file, metadata, TYPE);
+            int lines = 0;
+            try (BufferedWriter writer = Files.newBufferedWriter(IOUtils.makeParents(tempFile), StandardCharsets.UTF_8)) {
+                for (FileMetadata meta : metadata.asMap().values()) {
+                    writer.write(GSON.toJson(meta));
+                    writer.write('\n');
+                    lines++;
+                }
             }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            fileLines = lines;
         } catch (IOException ex) {
-            LOGGER.error("Failed to save storage.", ex);
+            LOGGER.error("Failed to compact storage.", ex);
         }
     }
 
-    private static @Nullable FileMetadata query(String murmur) {
+    /**
+     * Query the API for the metadata of a single hash.
+     *
+     * @param murmur The hash.
+     * @return The metadata, {@code null} if the API does not know the hash.
+     * @throws IOException If the request failed, or the response could not be read.
+     */
+    private static @Nullable FileMetadata query(String murmur) throws IOException {
         if (murmur.equals("-1")) {
             return null;
         }
         
         StringWriter sw = new StringWriter();
+        LOGGER.info("Querying metadata for {}", murmur);
+        DownloadAction action = new OkHttpDownloadAction()
+                .setClient(Constants.httpClient())
+                .setUrl(ModpackApiUtils.getModpacksApi() + "/mod/lookup/" + murmur)
+                .setDest(sw);
+
+        ModpackApiUtils.injectBearerHeader(action);
         try {
-            LOGGER.info("Querying metadata for {}", murmur);
-            DownloadAction action = new OkHttpDownloadAction()
-                    .setClient(Constants.httpClient())
-                    .setUrl(ModpackApiUtils.getModpacksApi() + "/mod/lookup/" + murmur)
-                    .setDest(sw);
-            
-            ModpackApiUtils.injectBearerHeader(action);
             action.execute();
+        } catch (HttpResponseException ex) {
+            if (ex.code == 404) return null;
+            throw ex;
+        }
 
-            FileLookupResponse resp = JsonUtils.parse(GSON, sw.toString(), FileLookupResponse.class);
-            if (resp == null) return null;
-
-            return resp.meta;
-        } catch (IOException | JsonParseException ex) {
-            LOGGER.warn("Failed to query metadata for {}", murmur, ex);
-            return null;
+        FileLookupResponse resp;
+        try {
+            resp = JsonUtils.parse(GSON, sw.toString(), FileLookupResponse.class);
+        } catch (JsonParseException ex) {
+            throw new IOException("Malformed metadata response.", ex);
         }
+        if (resp == null) throw new IOException("Empty metadata response.");
+
+        // The API answered, no meta means it doesn't know the hash.
+        return resp.meta;
     }
 
     // Only the useful things from /public/mod/lookup/<hash>
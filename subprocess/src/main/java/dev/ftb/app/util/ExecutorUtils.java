@@ -0,0 +1,47 @@
+package dev.ftb.app.util;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class ExecutorUtils {
+
+    /**
+     * If blocking I/O executors should use platform threads instead of virtual threads.
+     * <p>
+     * Escape hatch in case virtual threads misbehave on a user's system, set via {@code -DExecutorUtils.platformThreads=true}.
+     */
+    public static final boolean PLATFORM_THREADS = Boolean.getBoolean("ExecutorUtils.platformThreads");
+
+    /**
+     * Create an unbounded executor for blocking I/O work.
+     * <p>
+     * By default, this starts a new virtual thread per task. Callers are responsible for
+     * bounding concurrency if required.
+     *
+     * @param name The thread name prefix, threads are suffixed with an incrementing number.
+     * @return The executor.
+     */
+    public static ExecutorService newIoExecutor(String name) {
+        return newIoExecutor(name, PLATFORM_THREADS);
+    }
+
+    /**
+     * Overload of {@link #newIoExecutor(String)} which explicitly selects the thread type.
+     *
+     * @param name            The thread name prefix.
+     * @param platformThreads If a cached pool of daemon platform threads should be used instead of virtual threads.
+     * @return The executor.
+     */
+    public static ExecutorService newIoExecutor(String name, boolean platformThreads) {
+        if (platformThreads) {
+            return Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+                    .setNameFormat(name + " %d")
+                    .setDaemon(true)
+                    .build()
+            );
+        }
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + " ", 0).factory());
+    }
+}
@@ -1,38 +1,172 @@
 package dev.ftb.app.util;
 
-import org.apache.commons.codec.digest.MurmurHash2;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 
-import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.stream.IntStream;
 
 public class HashingUtils {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Compute the CurseForge fingerprint of the given file.
+     * <p>
+     * This streams the file twice, once to compute the normalized length and once to hash,
+     * so memory use is constant regardless of file size.
+     *
+     * @param file The file.
+     * @return The fingerprint, or {@code 0} if the file could not be read.
+     */
     public static long createCurseForgeMurmurHash(Path file) {
         try {
-            var fileBytes = Files.readAllBytes(file);
-            return createCurseForgeMurmurHash(fileBytes);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long length = 0;
+            try (InputStream is = Files.newInputStream(file)) {
+                int len;
+                while ((len = is.read(buffer)) != -1) {
+                    length += CurseForgeMurmur.normalizedLength(buffer, 0, len);
+                }
+            }
+            return createCurseForgeMurmurHash(file, length, buffer);
         } catch (Exception e) {
             return 0;
         }
     }
-    
+
+    /**
+     * Compute the CurseForge fingerprint of the given bytes.
+     *
+     * @param fileBytes The bytes.
+     * @return The fingerprint.
+     */
     public static long createCurseForgeMurmurHash(byte[] fileBytes) {
-        try {            
-            var fileBytesWithoutWhitespace = IntStream.range(0, fileBytes.length)
-                .map(i -> fileBytes[i])
-                .filter(b -> b != 9 && b != 10 && b != 13 && b != 32)
-                .collect(ByteArrayOutputStream::new, ByteArrayOutputStream::write, (a, b) -> {})
-                .toByteArray();
-            
-            int signedHash = MurmurHash2.hash32(fileBytesWithoutWhitespace, fileBytesWithoutWhitespace.length, 1);
-            if (signedHash < 0) {
-                return Integer.toUnsignedLong(signedHash);
+        CurseForgeMurmur murmur = new CurseForgeMurmur(CurseForgeMurmur.normalizedLength(fileBytes, 0, fileBytes.length));
+        murmur.update(fileBytes, 0, fileBytes.length);
+        return murmur.finish();
+    }
+
+    /**
+     * Compute the SHA1 and CurseForge fingerprint of the given file together.
+     * <p>
+     * The SHA1 and the fingerprint's normalized length are taken on the first pass, the fingerprint
+     * itself on the second, both through the same buffer, so memory use is constant regardless of file size.
+     *
+     * @param file The file.
+     * @return The hashes.
+     * @throws IOException If an IO error occurs.
+     */
+    @SuppressWarnings ({ "deprecation", "UnstableApiUsage" })
+    public static ModHashes hashSha1AndMurmur(Path file) throws IOException {
+        Hasher sha1 = Hashing.sha1().newHasher();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long length = 0;
+        try (InputStream is = Files.newInputStream(file)) {
+            int len;
+            while ((len = is.read(buffer)) != -1) {
+                sha1.putBytes(buffer, 0, len);
+                length += CurseForgeMurmur.normalizedLength(buffer, 0, len);
             }
-            
-            return signedHash;
-        } catch (Exception e) {
-            return 0;
+        }
+        return new ModHashes(sha1.hash(), createCurseForgeMurmurHash(file, length, buffer));
+    }
+
+    private static long createCurseForgeMurmurHash(Path file, long normalizedLength, byte[] buffer) throws IOException {
+        CurseForgeMurmur murmur = new CurseForgeMurmur(normalizedLength);
+        try (InputStream is = Files.newInputStream(file)) {
+            int len;
+            while ((len = is.read(buffer)) != -1) {
+                murmur.update(buffer, 0, len);
+            }
+        }
+        return murmur.finish();
+    }
+
+    /**
+     * The SHA1 and CurseForge fingerprint of a file.
+     *
+     * @param sha1   The SHA1.
+     * @param murmur The CurseForge fingerprint.
+     */
+    public record ModHashes(HashCode sha1, long murmur) { }
+
+    /**
+     * Streaming implementation of the CurseForge fingerprint.
+     * <p>
+     * This is MurmurHash2 32bit, seed {@code 1}, over the file with all whitespace
+     * bytes ({@code \t}, {@code \n}, {@code \r} and space) removed.
+     * Whitespace is skipped as the bytes are consumed, nothing is copied.
+     */
+    static final class CurseForgeMurmur {
+
+        private static final int M = 0x5bd1e995;
+        private static final int R = 24;
+        private static final int SEED = 1;
+
+        private int h;
+        private int k;
+        private int kLen;
+
+        /**
+         * @param normalizedLength The total number of non-whitespace bytes which will be fed to this hasher.
+         */
+        CurseForgeMurmur(long normalizedLength) {
+            h = SEED ^ (int) normalizedLength;
+        }
+
+        static boolean isWhitespace(byte b) {
+            return b == 9 || b == 10 || b == 13 || b == 32;
+        }
+
+        static int normalizedLength(byte[] buf, int off, int len) {
+            int count = 0;
+            for (int i = off; i < off + len; i++) {
+                if (!isWhitespace(buf[i])) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        void update(byte[] buf, int off, int len) {
+            int h = this.h;
+            int k = this.k;
+            int kLen = this.kLen;
+            for (int i = off; i < off + len; i++) {
+                byte b = buf[i];
+                if (isWhitespace(b)) continue;
+
+                k |= (b & 0xFF) << (kLen << 3);
+                if (++kLen == 4) {
+                    k *= M;
+                    k ^= k >>> R;
+                    k *= M;
+                    h *= M;
+                    h ^= k;
+                    k = 0;
+                    kLen = 0;
+                }
+            }
+            this.h = h;
+            this.k = k;
+            this.kLen = kLen;
+        }
+
+        long finish() {
+            int h = this.h;
+            if (kLen > 0) {
+                // Tail bytes, same as MurmurHash2's fall-through switch.
+                h ^= k;
+                h *= M;
+            }
+            h ^= h >>> 13;
+            h *= M;
+            h ^= h >>> 15;
+            return Integer.toUnsignedLong(h);
         }
     }
 }
@@ -1,10 +1,11 @@
 package dev.ftb.app.util;
 
+import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
 import com.google.common.cache.LoadingCache;
 import com.google.common.util.concurrent.ExecutionError;
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.google.gson.Gson;
 import com.google.gson.JsonParseException;
@@ -23,7 +24,6 @@ import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
-import java.util.Set;
 import java.util.concurrent.*;
 
 import static java.util.concurrent.CompletableFuture.completedFuture;
@@ -35,14 +35,29 @@ public class ModVersionCache {
     private static final Logger LOGGER = LogManager.getLogger();
     private static final Type TYPE = new TypeToken<Map<String, CacheEntry>>() { }.getType();
 
+    // Total number of manifest versions to hold in memory.
+    private static final long MAX_WEIGHT = 50_000;
+    // Minutes to remember a mod or version as missing, failures are often transient.
+    private static final long NEGATIVE_TTL = 5;
+
     private final Path file;
     private final Map<String, CacheEntry> modVersionCache;
 
-    private final ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactoryBuilder().setNameFormat("ModVersionCache %d").setDaemon(true).build());
-    private final Set<Long> modNegativeCache = ConcurrentHashMap.newKeySet();
-    private final Set<String> versionNegativeCache = ConcurrentHashMap.newKeySet();
+    private final ExecutorService executor = ExecutorUtils.newIoExecutor("ModVersionCache");
+    private final Cache<Long, Boolean> modNegativeCache = CacheBuilder.newBuilder()
+            .expireAfterWrite(NEGATIVE_TTL, TimeUnit.MINUTES)
+            .recordStats()
+            .build();
+    private final Cache<String, Boolean> versionNegativeCache = CacheBuilder.newBuilder()
+            .expireAfterWrite(NEGATIVE_TTL, TimeUnit.MINUTES)
+            .build();
+    // Manifests are weighed by their version count, a mod with thousands of versions costs far more to hold.
+    // Evicted manifests are cheap to get back, the ApiCache keeps them on disk.
     private final LoadingCache<Long, ModManifest> modCache = CacheBuilder.newBuilder()
+            .maximumWeight(MAX_WEIGHT)
+            .weigher((Long key, ModManifest value) -> 1 + value.getVersions().size())
             .expireAfterAccess(10, TimeUnit.MINUTES)
+            .recordStats()
             .build(new CacheLoader<>() {
                 @Override
                 public ModManifest load(Long key) throws Exception {
@@ -114,7 +129,7 @@ public class ModVersionCache {
         // Nothing to do.
         if (modId < 1) return completedFuture(null);
         // Slight optimization, to prevent hammering the API with unknown mods. Not sure if this can even happen, but sure.
-        if (modNegativeCache.contains(modId)) return completedFuture(null);
+        if (modNegativeCache.getIfPresent(modId) != null) return completedFuture(null);
 
         // Speeed, don't context switch if we don't need to.
         ModManifest manifest = modCache.getIfPresent(modId);
@@ -125,7 +140,7 @@ public class ModVersionCache {
                 return modCache.get(modId);
             } catch (ExecutionException | UncheckedExecutionException | ExecutionError ex) {
                 LOGGER.error("Error whilst querying mod from ram cache.", ex);
-                modNegativeCache.add(modId);
+                modNegativeCache.put(modId, Boolean.TRUE);
                 return null;
             }
         }, executor);
@@ -144,7 +159,7 @@ public class ModVersionCache {
      */
     public CompletableFuture<CachedMod> queryVersion(long modId, long modVersion) {
         String key = modId + ":" + modVersion;
-        if (modId < 1 || modVersion < 1 || versionNegativeCache.contains(key)) return completedFuture(null);
+        if (modId < 1 || modVersion < 1 || versionNegativeCache.getIfPresent(key) != null) return completedFuture(null);
 
         CacheEntry e = modVersionCache.get(key);
         if (e != null) return completedFuture(e.mod);
@@ -153,7 +168,7 @@ public class ModVersionCache {
             synchronized (modVersionCache) {
                 // Mod does not exist.
                 if (mod == null) {
-                    versionNegativeCache.add(key);
+                    versionNegativeCache.put(key, Boolean.TRUE);
                     return null;
                 }
 
@@ -164,7 +179,7 @@ public class ModVersionCache {
                 ModManifest.Version version = mod.findVersion(modVersion);
                 // Oh well, nothing we can do..
                 if (version == null) {
-                    versionNegativeCache.add(key);
+                    versionNegativeCache.put(key, Boolean.TRUE);
                     return null;
                 }
                 CachedMod cachedMod = new CachedMod(
@@ -180,6 +195,26 @@ public class ModVersionCache {
         }, executor);
     }
 
+    /**
+     * Log hit and load statistics for the in-memory tiers, if the cache has been loaded.
+     */
+    public static void logStatsIfLoaded() {
+        ModVersionCache instance = ModVersionCache.instance;
+        if (instance == null || !LOGGER.isDebugEnabled()) return;
+
+        CacheStats mods = instance.modCache.stats();
+        LOGGER.debug("Mod manifests: {} hits, {} misses, {} load failures, {} evictions, avg load {}ms.",
+                mods.hitCount(),
+                mods.missCount(),
+                mods.loadExceptionCount(),
+                mods.evictionCount(),
+                TimeUnit.NANOSECONDS.toMillis((long) mods.averageLoadPenalty())
+        );
+        // A hit is a query skipped because the mod recently failed.
+        CacheStats negative = instance.modNegativeCache.stats();
+        LOGGER.debug("Missing mods: {} queries skipped, {} checked.", negative.hitCount(), negative.missCount());
+    }
+
     private synchronized void save() {
         try {
             JsonUtils.write(GSON, file, modVersionCache, TYPE);
@@ -0,0 +1,114 @@
+package dev.ftb.app.util;
+
+import org.jspecify.annotations.Nullable;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * A bounded, lock-free, multi-producer single-consumer ring buffer.
+ * <p>
+ * Each slot carries a sequence number. Producers claim a slot with a single CAS on the tail
+ * and publish it by advancing the slot's sequence. The consumer only ever reads slots whose
+ * sequence says they are published, so it never observes a half-written element.
+ * <p>
+ * {@link #poll()} and {@link #drain} must only ever be called from one thread at a time.
+ *
+ * @param <E> The element type.
+ */
+public final class MpscRingBuffer<E> {
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<E> elements;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    // Only touched by the consumer.
+    private long head;
+
+    /**
+     * @param capacity The capacity, must be a power of two.
+     */
+    public MpscRingBuffer(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) throw new IllegalArgumentException("Capacity must be a power of two.");
+
+        this.capacity = capacity;
+        mask = capacity - 1;
+        elements = new AtomicReferenceArray<>(capacity);
+        sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Try to add an element.
+     *
+     * @param e The element.
+     * @return {@code false} if the buffer is full.
+     */
+    public boolean offer(E e) {
+        while (true) {
+            long t = tail.get();
+            int idx = (int) (t & mask);
+            long seq = sequences.get(idx);
+            if (seq == t) {
+                if (tail.compareAndSet(t, t + 1)) {
+                    elements.lazySet(idx, e);
+                    sequences.set(idx, t + 1);
+                    return true;
+                }
+            } else if (seq < t) {
+                // Slot still holds an element from the previous lap, we are full.
+                return false;
+            }
+            // Another producer claimed this slot, retry.
+        }
+    }
+
+    /**
+     * Remove the next element, consumer only.
+     *
+     * @return The element, or {@code null} if the buffer is empty.
+     */
+    public @Nullable E poll() {
+        int idx = (int) (head & mask);
+        if (sequences.get(idx) != head + 1) return null;
+
+        E e = elements.get(idx);
+        elements.lazySet(idx, null);
+        sequences.set(idx, head + capacity);
+        head++;
+        return e;
+    }
+
+    /**
+     * Remove up to {@code max} elements, consumer only.
+     *
+     * @param consumer The consumer to receive each element.
+     * @param max      The maximum number of elements to drain.
+     * @return The number of elements drained.
+     */
+    public int drain(Consumer<? super E> consumer, int max) {
+        int count = 0;
+        E e;
+        while (count < max && (e = poll()) != null) {
+            consumer.accept(e);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return An estimate of the number of elements in the buffer.
+     */
+    public int size() {
+        return (int) Math.max(0, Math.min(capacity, tail.get() - head));
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,251 @@
+package dev.ftb.app.util;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+/**
+ * Reads lines from a process output stream and hands each to a consumer.
+ * <p>
+ * Gobblers run on a shared virtual thread executor, so a gobbler blocked on a quiet pipe holds no
+ * platform thread. Lines are split on {@code \n} at the byte level and decoded with an explicit
+ * charset, defaulting to the platform's native encoding, which is what child JVMs write in. A line
+ * longer than the maximum line length is split into several, so a stream without line breaks can
+ * never grow the buffer without limit. Splits never cut a character in half, in any charset.
+ */
+public final class StreamGobbler {
+
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    private static final ExecutorService EXECUTOR = ExecutorUtils.newIoExecutor("Stream Gobbler");
+
+    /**
+     * The encoding child processes use for stdout and stderr when not told otherwise.
+     */
+    public static final Charset NATIVE_CHARSET = nativeCharset();
+    public static final int DEFAULT_MAX_LINE_LENGTH = 64 * 1024;
+    private static final int READ_BUFFER_SIZE = 8192;
+
+    private String name = "Stream Gobbler";
+    private @Nullable InputStream input;
+    private @Nullable Consumer<String> output;
+    private Charset charset = NATIVE_CHARSET;
+    private int maxLineLength = DEFAULT_MAX_LINE_LENGTH;
+
+    private final CompletableFuture<Void> finished = new CompletableFuture<>();
+    private volatile boolean started;
+    private volatile boolean stop;
+
+    public StreamGobbler setName(String name) {
+        this.name = name;
+        return this;
+    }
+
+    public StreamGobbler setInput(InputStream is) {
+        if (input != null) throw new IllegalArgumentException("Unable to change input.");
+        input = is;
+        return this;
+    }
+
+    public StreamGobbler setOutput(Consumer<String> output) {
+        if (this.output != null) throw new IllegalArgumentException("Unable to change output.");
+        this.output = output;
+        return this;
+    }
+
+    public StreamGobbler setCharset(Charset charset) {
+        this.charset = charset;
+        return this;
+    }
+
+    /**
+     * @param maxLineLength The maximum length of a line in bytes, longer lines are split.
+     */
+    public StreamGobbler setMaxLineLength(int maxLineLength) {
+        if (maxLineLength < 4) throw new IllegalArgumentException("Max line length must be at least 4 bytes.");
+        this.maxLineLength = maxLineLength;
+        return this;
+    }
+
+    public StreamGobbler start() {
+        if (input == null) throw new IllegalStateException("Input not set.");
+        if (output == null) throw new IllegalStateException("Output not set.");
+        if (started) throw new IllegalStateException("Cannot be started more than once.");
+        started = true;
+
+        InputStream input = this.input;
+        Consumer<String> output = this.output;
+        EXECUTOR.execute(() -> {
+            Thread thread = Thread.currentThread();
+            String prevName = thread.getName();
+            thread.setName(name);
+            try (input) {
+                gobble(input, output);
+            } catch (IOException ex) {
+                // Closing the stream to stop us is expected to throw.
+                if (!stop) {
+                    // Maybe a bit verbose, sometimes these may occur on normal shutdown.
+                    LOGGER.warn("{} exiting with IOException.", name, ex);
+                }
+            } finally {
+                thread.setName(prevName);
+                finished.complete(null);
+            }
+        });
+        return this;
+    }
+
+    private void gobble(InputStream input, Consumer<String> output) throws IOException {
+        byte[] buf = new byte[READ_BUFFER_SIZE];
+        byte[] line = new byte[Math.min(maxLineLength, 256)];
+        int lineLen = 0;
+        int read;
+        while (!stop && (read = input.read(buf)) != -1) {
+            int start = 0;
+            for (int i = indexOf(buf, 0, read); i != -1; i = indexOf(buf, i + 1, read)) {
+
+                if (lineLen == 0 && i - start <= maxLineLength) {
+                    emit(output, buf, start, i - start);
+                } else {
+                    line = append(line, lineLen, buf, start, i - start);
+                    lineLen += i - start;
+                    lineLen = emitSplit(output, line, lineLen);
+                    emit(output, line, 0, lineLen);
+                    lineLen = 0;
+                }
+                start = i + 1;
+                if (stop) return;
+            }
+            if (start < read) {
+                line = append(line, lineLen, buf, start, read - start);
+                lineLen += read - start;
+                lineLen = emitSplit(output, line, lineLen);
+            }
+        }
+        if (lineLen > 0 && !stop) {
+            emit(output, line, 0, lineLen);
+        }
+    }
+
+    /**
+     * Emit full lines from the front of an overlong line buffer.
+     *
+     * @return The number of bytes left in the buffer.
+     */
+    private int emitSplit(Consumer<String> output, byte[] line, int lineLen) {
+        int start = 0;
+        while (lineLen - start > maxLineLength) {
+            // Decode without end of input, so the decoder stops short of a character cut off at the split point,
+            // whatever the charset. The remaining bytes start the next piece.
+            ByteBuffer in = ByteBuffer.wrap(line, start, maxLineLength);
+            CharBuffer out = CharBuffer.allocate(maxLineLength);
+            CharsetDecoder decoder = charset.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            decoder.decode(in, out, false);
+            if (in.position() == start) {
+                // Nothing decodable, don't get stuck.
+                in.position(start + maxLineLength);
+                out.put(new String(line, start, maxLineLength, charset));
+            }
+            output.accept(out.flip().toString());
+            start = in.position();
+        }
+        if (start == 0) return lineLen;
+
+        System.arraycopy(line, start, line, 0, lineLen - start);
+        return lineLen - start;
+    }
+
+    /**
+     * Find the next {@code \n}. Kept out of {@link #gobble} so the JIT compiles the scan on its own,
+     * scanning inline in the read loop was measurably slower.
+     */
+    private static int indexOf(byte[] buf, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buf[i] == '\n') return i;
+        }
+        return -1;
+    }
+
+    private void emit(Consumer<String> output, byte[] bytes, int off, int len) {
+        if (len > 0 && bytes[off + len - 1] == '\r') {
+            len--;
+        }
+        output.accept(new String(bytes, off, len, charset));
+    }
+
+    private static byte[] append(byte[] line, int lineLen, byte[] bytes, int off, int len) {
+        if (lineLen + len > line.length) {
+            line = Arrays.copyOf(line, Math.max(lineLen + len, line.length * 2));
+        }
+        System.arraycopy(bytes, off, line, lineLen, len);
+        return line;
+    }
+
+    /**
+     * Stop gobbling. No further lines are passed to the output once the current line is done.
+     * <p>
+     * The input stream is also closed, which on most platforms wakes a read blocked on a pipe that
+     * some other process is still holding open.
+     */
+    public void stop() {
+        stop = true;
+        if (input == null) return;
+        try {
+            input.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * Give the gobbler a chance to reach the end of its stream, then stop it.
+     * <p>
+     * Used once a process has exited, so output still sitting in the pipe is not lost.
+     *
+     * @param timeout The maximum time to wait.
+     * @param unit    The unit of {@code timeout}.
+     */
+    public void stop(long timeout, TimeUnit unit) {
+        try {
+            finished.get(timeout, unit);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException ignored) {
+        }
+        stop();
+    }
+
+    /**
+     * @return A future completed once the gobbler has exited.
+     */
+    public CompletableFuture<Void> onFinished() {
+        return finished;
+    }
+
+    private static Charset nativeCharset() {
+        String name = System.getProperty("native.encoding");
+        if (name != null) {
+            try {
+                return Charset.forName(name);
+            } catch (IllegalArgumentException ignored) {
+            }
+        }
+        return Charset.defaultCharset();
+    }
+}
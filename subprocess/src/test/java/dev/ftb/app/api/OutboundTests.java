@@ -0,0 +1,93 @@
+package dev.ftb.app.api;
+
+import dev.ftb.app.api.NanoHttpdWebsocketServer.Outbound;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OutboundTests {
+
+    // Writer tasks are only run when the test says so.
+    private final Queue<Runnable> writer = new ArrayDeque<>();
+    private final List<Object> sent = new CopyOnWriteArrayList<>();
+
+    @Test
+    public void testCoalesce() {
+        Outbound outbound = new Outbound(sent::add, writer::add);
+        outbound.enqueue("progress 1", "progress");
+        outbound.enqueue("other", null);
+        outbound.enqueue("progress 2", "progress");
+        drain();
+
+        // The replacement goes to the back, after anything sent since the message it replaced.
+        assertEquals(List.of("other", "progress 2"), sent);
+
+        // Once sent, the key is free again.
+        outbound.enqueue("progress 3", "progress");
+        drain();
+        assertEquals(List.of("other", "progress 2", "progress 3"), sent);
+    }
+
+    @Test
+    public void testDropAfterTimeout() {
+        Outbound outbound = new Outbound(sent::add, writer::add, 2, 100, 50);
+        outbound.enqueue("a", null);
+        outbound.enqueue("b", "key");
+
+        long start = System.nanoTime();
+        outbound.enqueue("c", null);
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50), "Producer did not wait for space.");
+
+        // Coalescing never needs space, it replaces a queued message.
+        start = System.nanoTime();
+        outbound.enqueue("d", "key");
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(50), "Producer waited to replace a message.");
+        drain();
+        assertEquals(List.of("a", "d"), sent);
+    }
+
+    @Test
+    public void testTombstonesBounded() {
+        Outbound outbound = new Outbound(sent::add, writer::add, 100, 4, 50);
+        for (int i = 0; i < 1000; i++) {
+            outbound.enqueue("progress " + i, "progress");
+            assertTrue(outbound.queuedSlots() <= 1 + 4, "Queue holds " + outbound.queuedSlots() + " slots.");
+        }
+        drain();
+        assertEquals(List.of("progress 999"), sent);
+    }
+
+    @Test
+    public void testCloseReleasesProducer() throws InterruptedException {
+        Outbound outbound = new Outbound(sent::add, writer::add, 1, 100, TimeUnit.MINUTES.toMillis(1));
+        outbound.enqueue("a", null);
+
+        Thread producer = new Thread(() -> outbound.enqueue("b", null));
+        producer.start();
+        // Wait for the producer to block on the full queue.
+        while (producer.getState() != Thread.State.TIMED_WAITING && producer.isAlive()) {
+            Thread.sleep(1);
+        }
+        outbound.close();
+        producer.join(TimeUnit.SECONDS.toMillis(5));
+        assertFalse(producer.isAlive(), "Producer still blocked after close.");
+
+        drain();
+        assertEquals(List.of(), sent);
+    }
+
+    private void drain() {
+        Runnable task;
+        while ((task = writer.poll()) != null) {
+            task.run();
+        }
+    }
+}
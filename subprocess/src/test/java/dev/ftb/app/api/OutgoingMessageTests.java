@@ -0,0 +1,94 @@
+package dev.ftb.app.api;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import dev.ftb.app.api.NanoHttpdWebsocketServer.OutgoingMessage;
+import dev.ftb.app.api.data.BaseData;
+import org.jspecify.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Pins the binary frame layout the frontend decodes, see {@code decodeBinaryMessage} in {@code wsStore.ts}.
+ */
+public class OutgoingMessageTests {
+
+    @Test
+    public void testSmallMessageIsText() {
+        OutgoingMessage msg = new OutgoingMessage(new TestData("hello", null));
+        assertEquals(msg.text(), msg.binary());
+    }
+
+    @Test
+    public void testAttachment() {
+        byte[] attachment = new byte[] { 0, 1, 2, (byte) 0xFF };
+        OutgoingMessage msg = new OutgoingMessage(new TestData("hello", attachment));
+
+        ByteBuffer frame = ByteBuffer.wrap((byte[]) msg.binary());
+        assertEquals(0, frame.get());
+        byte[] jsonBytes = new byte[frame.getInt()];
+        frame.get(jsonBytes);
+        byte[] trailing = new byte[frame.remaining()];
+        frame.get(trailing);
+
+        JsonObject json = JsonParser.parseString(new String(jsonBytes, StandardCharsets.UTF_8)).getAsJsonObject();
+        assertEquals("body.bytes", json.get("_attachment").getAsString());
+        JsonObject body = json.getAsJsonObject("body");
+        assertFalse(body.has("bytes"));
+        assertEquals("hello", body.get("name").getAsString());
+        assertArrayEquals(attachment, trailing);
+    }
+
+    @Test
+    public void testCompressed() throws IOException {
+        OutgoingMessage msg = new OutgoingMessage(new TestData("a".repeat(OutgoingMessage.COMPRESS_THRESHOLD), null));
+
+        ByteBuffer frame = ByteBuffer.wrap((byte[]) msg.binary());
+        assertEquals(OutgoingMessage.FLAG_GZIP, frame.get());
+        int length = frame.getInt();
+        // No attachment, the json runs to the end of the frame.
+        assertEquals(frame.remaining(), length);
+
+        byte[] compressed = Arrays.copyOfRange(frame.array(), frame.position(), frame.limit());
+        try (InputStream is = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            assertEquals(msg.text(), new String(is.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    private static class TestData extends BaseData {
+
+        public final Body body;
+
+        TestData(String name, byte @Nullable [] bytes) {
+            type = "test";
+            body = new Body(name, bytes);
+        }
+
+        @Override
+        public @Nullable BinaryAttachment binaryAttachment() {
+            return body.bytes != null ? new BinaryAttachment("body.bytes", body.bytes) : null;
+        }
+    }
+
+    private static class Body {
+
+        public final String name;
+        public final byte @Nullable [] bytes;
+
+        Body(String name, byte @Nullable [] bytes) {
+            this.name = name;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package dev.ftb.app.install;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import net.covers1624.quack.util.MultiHasher.HashFunc;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings ("UnstableApiUsage")
+public class FileHashCacheTests {
+
+    @Test
+    public void testChangeDetected() throws IOException {
+        Path dir = Files.createTempDirectory("hashCache");
+        Path file = write(dir.resolve("file.txt"), "hello");
+
+        FileHashCache cache = new FileHashCache(dir.resolve("hashes.bin"));
+        assertEquals(sha1("hello"), cache.hash(file, HashFunc.SHA1));
+
+        write(file, "hello world");
+        assertEquals(sha1("hello world"), cache.hash(file, HashFunc.SHA1));
+    }
+
+    @Test
+    public void testPersisted() throws IOException {
+        Path dir = Files.createTempDirectory("hashCache");
+        Path file = write(dir.resolve("file.txt"), "hello");
+
+        FileHashCache cache = new FileHashCache(dir.resolve("hashes.bin"));
+        cache.hash(file, HashFunc.SHA1);
+        cache.save();
+
+        // Swap the content without changing the stamp, the cached hash should be returned.
+        FileTime mtime = Files.getLastModifiedTime(file);
+        Files.writeString(file, "jello", StandardCharsets.UTF_8);
+        Files.setLastModifiedTime(file, mtime);
+
+        FileHashCache reloaded = new FileHashCache(dir.resolve("hashes.bin"));
+        assertEquals(sha1("hello"), reloaded.hash(file, HashFunc.SHA1));
+    }
+
+    private static Path write(Path file, String content) throws IOException {
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+        // Push the mtime out of the racy window, so the result can be cached.
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().minus(1, ChronoUnit.MINUTES)));
+        return file;
+    }
+
+    private static HashCode sha1(String str) {
+        return Hashing.sha1().hashString(str, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,86 @@
+package dev.ftb.app.install.tasks;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DownloadFlightsTests {
+
+    private static final Path DEST = Path.of("libraries/example.jar");
+
+    @Test
+    public void testJoin() throws Exception {
+        DownloadFlights flights = new DownloadFlights();
+        AtomicInteger downloads = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Boolean> leader = CompletableFuture.supplyAsync(() -> run(flights, () -> {
+            downloads.incrementAndGet();
+            started.countDown();
+            await(release);
+        }));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        CompletableFuture<Boolean> follower = CompletableFuture.supplyAsync(() -> run(flights, downloads::incrementAndGet));
+        Thread.sleep(200);
+        assertFalse(follower.isDone());
+
+        release.countDown();
+        assertTrue(leader.get(10, TimeUnit.SECONDS));
+        assertFalse(follower.get(10, TimeUnit.SECONDS));
+        assertEquals(1, downloads.get());
+    }
+
+    @Test
+    public void testLeaderFailure() throws Exception {
+        DownloadFlights flights = new DownloadFlights();
+        AtomicInteger downloads = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Boolean> leader = CompletableFuture.supplyAsync(() -> run(flights, () -> {
+            downloads.incrementAndGet();
+            started.countDown();
+            await(release);
+            throw new IOException("Boom");
+        }));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        CompletableFuture<Boolean> follower = CompletableFuture.supplyAsync(() -> run(flights, downloads::incrementAndGet));
+        release.countDown();
+
+        assertThrows(Exception.class, () -> leader.get(10, TimeUnit.SECONDS));
+        // The follower should have retried the download itself.
+        assertTrue(follower.get(10, TimeUnit.SECONDS));
+        assertEquals(2, downloads.get());
+    }
+
+    private static boolean run(DownloadFlights flights, Action action) {
+        try {
+            return flights.run(DEST, null, null, null, listener -> action.run());
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    private interface Action {
+
+        void run() throws IOException;
+    }
+}
@@ -0,0 +1,95 @@
+package dev.ftb.app.install.tasks;
+
+import dev.ftb.app.util.ElapsedTimer;
+import dev.ftb.app.util.ExecutorUtils;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the {@link DownloadScheduler} running on virtual threads vs platform threads.
+ * <p>
+ * Simulates an asset install, thousands of small blocking requests spread over a couple of hosts.
+ * Prints wall time and the peak number of live platform threads for each mode, then a summary of
+ * the medians to record with the change.
+ * <p>
+ * Remove {@link Disabled} locally and run with the project's toolchain, e.g. {@code ./gradlew :subprocess:test --tests '*DownloadSchedulerBenchmark'}.
+ */
+@Disabled // Measurement only, not a correctness test. Run manually.
+public class DownloadSchedulerBenchmark {
+
+    private static final int TASKS = 10_000;
+    private static final int CONCURRENCY = 64;
+    private static final long REQUEST_MILLIS = 5;
+    private static final int ITERATIONS = 5;
+
+    @Test
+    public void compareThreadModes() throws Throwable {
+        // Warmup.
+        run(false);
+        run(true);
+
+        long[] virtualNanos = new long[ITERATIONS];
+        long[] platformNanos = new long[ITERATIONS];
+        int virtualPeak = 0;
+        int platformPeak = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            Result virtual = run(false);
+            Result platform = run(true);
+            virtualNanos[i] = virtual.nanos;
+            platformNanos[i] = platform.nanos;
+            virtualPeak = Math.max(virtualPeak, virtual.peakThreads);
+            platformPeak = Math.max(platformPeak, platform.peakThreads);
+            System.out.printf("Virtual:  %s, peak threads %d%n", ElapsedTimer.timeString(virtual.nanos), virtual.peakThreads);
+            System.out.printf("Platform: %s, peak threads %d%n", ElapsedTimer.timeString(platform.nanos), platform.peakThreads);
+        }
+
+        System.out.printf("%s, %d tasks, concurrency %d, %dms per request%n", Runtime.version(), TASKS, CONCURRENCY, REQUEST_MILLIS);
+        System.out.printf("Median virtual:  %s, max peak threads %d%n", ElapsedTimer.timeString(median(virtualNanos)), virtualPeak);
+        System.out.printf("Median platform: %s, max peak threads %d%n", ElapsedTimer.timeString(median(platformNanos)), platformPeak);
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private static Result run(boolean platformThreads) throws Throwable {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        ExecutorService executor = ExecutorUtils.newIoExecutor("Benchmark", platformThreads);
+        try {
+            DownloadScheduler scheduler = new DownloadScheduler(executor, () -> CONCURRENCY);
+            threads.resetPeakThreadCount();
+            ElapsedTimer timer = new ElapsedTimer();
+            List<CompletableFuture<Void>> futures = new ArrayList<>(TASKS);
+            for (int i = 0; i < TASKS; i++) {
+                String host = (i & 1) == 0 ? "resources.download.minecraft.net" : "libraries.minecraft.net";
+                futures.add(scheduler.submit(host, () -> {
+                    try {
+                        Thread.sleep(REQUEST_MILLIS);
+                    } catch (InterruptedException ex) {
+                        throw new RuntimeException(ex);
+                    }
+                    scheduler.onSuccess(host, 16 * 1024);
+                }));
+            }
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+            return new Result(timer.elapsedNanos(), threads.getPeakThreadCount());
+        } finally {
+            // Wait for the pool threads to exit, so they don't count towards the next run's peak.
+            executor.shutdownNow();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+
+    private record Result(long nanos, int peakThreads) { }
+}
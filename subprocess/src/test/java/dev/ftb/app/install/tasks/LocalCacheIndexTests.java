@@ -0,0 +1,80 @@
+package dev.ftb.app.install.tasks;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings ("UnstableApiUsage")
+public class LocalCacheIndexTests {
+
+    @Test
+    public void testReplay() throws IOException {
+        Path dir = Files.createTempDirectory("localCache");
+        Path indexFile = dir.resolve("index.bin");
+
+        HashCode a = sha1("a");
+        HashCode b = sha1("b");
+        LocalCacheIndex index = new LocalCacheIndex(indexFile, dir.resolve("index.json"));
+        index.add(a, 10);
+        index.add(b, 20);
+        index.remove(a);
+
+        LocalCacheIndex reloaded = new LocalCacheIndex(indexFile, dir.resolve("index.json"));
+        assertFalse(reloaded.contains(a));
+        assertTrue(reloaded.contains(b));
+        assertEquals(20, reloaded.get(b).size());
+    }
+
+    @Test
+    public void testTornTail() throws IOException {
+        Path dir = Files.createTempDirectory("localCache");
+        Path indexFile = dir.resolve("index.bin");
+
+        HashCode a = sha1("a");
+        HashCode b = sha1("b");
+        LocalCacheIndex index = new LocalCacheIndex(indexFile, dir.resolve("index.json"));
+        index.add(a, 10);
+        index.add(b, 20);
+
+        // Simulate a crash half way through writing the last record.
+        long size = Files.size(indexFile);
+        try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.WRITE)) {
+            channel.truncate(size - 5);
+        }
+
+        LocalCacheIndex reloaded = new LocalCacheIndex(indexFile, dir.resolve("index.json"));
+        assertTrue(reloaded.contains(a));
+        assertFalse(reloaded.contains(b));
+
+        // Log should have been repaired, so new appends replay correctly.
+        reloaded.add(b, 20);
+        assertTrue(new LocalCacheIndex(indexFile, dir.resolve("index.json")).contains(b));
+    }
+
+    @Test
+    public void testLegacyImport() throws IOException {
+        Path dir = Files.createTempDirectory("localCache");
+        Path legacyFile = dir.resolve("index.json");
+
+        HashCode a = sha1("a");
+        Files.writeString(legacyFile, "[\"" + a + "\"]", StandardCharsets.UTF_8);
+
+        LocalCacheIndex index = new LocalCacheIndex(dir.resolve("index.bin"), legacyFile);
+        assertTrue(index.contains(a));
+        assertTrue(Files.notExists(legacyFile));
+        assertTrue(new LocalCacheIndex(dir.resolve("index.bin"), legacyFile).contains(a));
+    }
+
+    private static HashCode sha1(String str) {
+        return Hashing.sha1().hashString(str, StandardCharsets.UTF_8);
+    }
+}
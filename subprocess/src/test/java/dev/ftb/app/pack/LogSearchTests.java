@@ -0,0 +1,65 @@
+package dev.ftb.app.pack;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class LogSearchTests {
+
+    private static final String LOG = """
+            [12:00:00] [main/INFO]: Starting Kettle
+            [12:00:01] [main/WARN]: Something odd about the kettle
+            [12:00:02] [main/ERROR]: KETTLE exploded
+            java.lang.RuntimeException: kettle
+            [12:00:03] [main/INFO]: Straße ſtill Kettle
+            """;
+
+    @Test
+    public void testLiteralCaseInsensitive() throws IOException {
+        Path file = write(LOG);
+        assertEquals(List.of(0L, 1L, 2L, 3L, 4L), lines(search(file, "kettle", false)));
+    }
+
+    @Test
+    public void testLiteralCaseSensitive() throws IOException {
+        Path file = write(LOG);
+        assertEquals(List.of(1L, 3L), lines(search(file, "kettle", true)));
+        assertEquals(List.of(4L), lines(search(file, "Straße", true)));
+    }
+
+    @Test
+    public void testLevelsWithLiteral() throws IOException {
+        Path file = write(LOG);
+        LogSearch.Result result = LogSearch.search(file, new LogSearch.Query(
+                compile("kettle", false), "kettle", Set.of(LogSearch.LogLevel.ERROR), 0, 100
+        ));
+        // The stack trace inherits the level of the line before.
+        assertEquals(List.of(2L, 3L), lines(result));
+    }
+
+    private static LogSearch.Result search(Path file, String literal, boolean caseSensitive) throws IOException {
+        return LogSearch.search(file, new LogSearch.Query(compile(literal, caseSensitive), literal, Set.of(), 0, 100));
+    }
+
+    private static Pattern compile(String literal, boolean caseSensitive) {
+        return Pattern.compile(Pattern.quote(literal), caseSensitive ? 0 : Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+    }
+
+    private static List<Long> lines(LogSearch.Result result) {
+        return result.matches().stream().map(LogSearch.Match::line).toList();
+    }
+
+    private static Path write(String str) throws IOException {
+        Path file = Files.createTempFile("console", ".log");
+        Files.writeString(file, str, StandardCharsets.UTF_8);
+        return file;
+    }
+}
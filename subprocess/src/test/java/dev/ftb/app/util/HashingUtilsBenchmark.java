@@ -0,0 +1,71 @@
+package dev.ftb.app.util;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.codec.digest.MurmurHash2;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * Compares the old read-everything SHA1 + CurseForge murmur path used by {@code Instance.getMods}
+ * against {@link HashingUtils#hashSha1AndMurmur(Path)}.
+ * <p>
+ * Prints wall time and bytes allocated by the calling thread for a 50MB file.
+ */
+@Disabled // Measurement only, not a correctness test. Run manually.
+public class HashingUtilsBenchmark {
+
+    private static final int FILE_SIZE = 50 * 1024 * 1024;
+    private static final int ITERATIONS = 5;
+
+    @Test
+    public void compare() throws Throwable {
+        byte[] data = new byte[FILE_SIZE];
+        new Random(42).nextBytes(data);
+        Path file = Files.createTempFile("murmur", ".jar");
+        Files.write(file, data);
+
+        // Warmup.
+        for (int i = 0; i < 2; i++) {
+            legacy(file);
+            HashingUtils.hashSha1AndMurmur(file);
+        }
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (int i = 0; i < ITERATIONS; i++) {
+            long allocStart = threads.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            legacy(file);
+            long legacyNanos = System.nanoTime() - start;
+            long legacyAlloc = threads.getCurrentThreadAllocatedBytes() - allocStart;
+
+            allocStart = threads.getCurrentThreadAllocatedBytes();
+            start = System.nanoTime();
+            HashingUtils.hashSha1AndMurmur(file);
+            long streamingNanos = System.nanoTime() - start;
+            long streamingAlloc = threads.getCurrentThreadAllocatedBytes() - allocStart;
+
+            System.out.printf("Legacy:    %s, allocated %d MB%n", ElapsedTimer.timeString(legacyNanos), legacyAlloc / 1024 / 1024);
+            System.out.printf("Streaming: %s, allocated %d MB%n", ElapsedTimer.timeString(streamingNanos), streamingAlloc / 1024 / 1024);
+        }
+    }
+
+    // Copy of the previous implementation.
+    private static long legacy(Path file) throws IOException {
+        byte[] fileBytes = Files.readAllBytes(file);
+        DigestUtils.sha1Hex(fileBytes);
+        byte[] fileBytesWithoutWhitespace = IntStream.range(0, fileBytes.length)
+                .map(i -> fileBytes[i])
+                .filter(b -> b != 9 && b != 10 && b != 13 && b != 32)
+                .collect(ByteArrayOutputStream::new, ByteArrayOutputStream::write, (a, b) -> { })
+                .toByteArray();
+        return Integer.toUnsignedLong(MurmurHash2.hash32(fileBytesWithoutWhitespace, fileBytesWithoutWhitespace.length, 1));
+    }
+}
@@ -0,0 +1,61 @@
+package dev.ftb.app.util;
+
+import com.google.common.hash.Hashing;
+import org.apache.commons.codec.digest.MurmurHash2;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SuppressWarnings ({ "deprecation", "UnstableApiUsage" })
+public class HashingUtilsTests {
+
+    @Test
+    public void testMatchesReference() {
+        Random rand = new Random(42);
+        // Cover every tail length, and buffers with lots of whitespace.
+        for (int len = 0; len < 64; len++) {
+            byte[] data = randomBytes(rand, len);
+            assertEquals(reference(data), HashingUtils.createCurseForgeMurmurHash(data), "Length " + len);
+        }
+    }
+
+    @Test
+    public void testFileApis() throws IOException {
+        byte[] data = randomBytes(new Random(1234), 200_000);
+        Path file = Files.createTempFile("murmur", ".jar");
+        Files.write(file, data);
+
+        long expected = reference(data);
+        assertEquals(expected, HashingUtils.createCurseForgeMurmurHash(file));
+
+        HashingUtils.ModHashes hashes = HashingUtils.hashSha1AndMurmur(file);
+        assertEquals(expected, hashes.murmur());
+        assertEquals(Hashing.sha1().hashBytes(data), hashes.sha1());
+    }
+
+    private static byte[] randomBytes(Random rand, int len) {
+        byte[] data = new byte[len];
+        rand.nextBytes(data);
+        for (int i = 0; i < len; i += 3) {
+            data[i] = (byte) " \t\r\n".charAt(rand.nextInt(4));
+        }
+        return data;
+    }
+
+    private static long reference(byte[] data) {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        for (byte b : data) {
+            if (b != 9 && b != 10 && b != 13 && b != 32) {
+                bos.write(b);
+            }
+        }
+        byte[] normalized = bos.toByteArray();
+        return Integer.toUnsignedLong(MurmurHash2.hash32(normalized, normalized.length, 1));
+    }
+}
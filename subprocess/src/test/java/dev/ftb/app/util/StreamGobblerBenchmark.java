@@ -0,0 +1,109 @@
+package dev.ftb.app.util;
+
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compares the previous {@code StreamGobblerLog}, a platform thread per stream reading with a
+ * {@link BufferedReader}, against {@link StreamGobbler}.
+ * <p>
+ * Prints wall time to gobble 200MB of log-like output, split across many concurrent streams.
+ */
+@Disabled // Measurement only, not a correctness test. Run manually.
+public class StreamGobblerBenchmark {
+
+    private static final int STREAMS = 64;
+    private static final int BYTES_PER_STREAM = 200 * 1024 * 1024 / STREAMS;
+    private static final int ITERATIONS = 5;
+
+    @Test
+    public void compare() throws Throwable {
+        byte[] data = generate();
+
+        // Warmup.
+        for (int i = 0; i < 2; i++) {
+            legacy(data);
+            gobbler(data);
+        }
+
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            long legacyLines = legacy(data);
+            long legacyNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            long lines = gobbler(data);
+            long gobblerNanos = System.nanoTime() - start;
+
+            System.out.printf("Legacy:  %s, %d lines%n", ElapsedTimer.timeString(legacyNanos), legacyLines);
+            System.out.printf("Gobbler: %s, %d lines%n", ElapsedTimer.timeString(gobblerNanos), lines);
+        }
+    }
+
+    private static byte[] generate() {
+        Random rand = new Random(42);
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(BYTES_PER_STREAM + 1024);
+        while (bos.size() < BYTES_PER_STREAM) {
+            String line = "[12:34:56] [Render thread/INFO] [minecraft/Main]: Loaded " + rand.nextInt() + " things in " + rand.nextInt(1000) + "ms"
+                          + " ".repeat(rand.nextInt(80)) + "\n";
+            bos.writeBytes(line.getBytes(StandardCharsets.UTF_8));
+        }
+        return bos.toByteArray();
+    }
+
+    private static long legacy(byte[] data) throws InterruptedException {
+        LongAdder lines = new LongAdder();
+        Thread[] threads = new Thread[STREAMS];
+        for (int i = 0; i < STREAMS; i++) {
+            threads[i] = legacyStart(new ByteArrayInputStream(data), e -> lines.increment());
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return lines.sum();
+    }
+
+    private static long gobbler(byte[] data) throws Exception {
+        LongAdder lines = new LongAdder();
+        StreamGobbler[] gobblers = new StreamGobbler[STREAMS];
+        for (int i = 0; i < STREAMS; i++) {
+            gobblers[i] = new StreamGobbler()
+                    .setInput(new ByteArrayInputStream(data))
+                    .setOutput(e -> lines.increment())
+                    .start();
+        }
+        for (StreamGobbler gobbler : gobblers) {
+            gobbler.onFinished().get(1, TimeUnit.MINUTES);
+        }
+        return lines.sum();
+    }
+
+    // Copy of the previous implementation.
+    private static Thread legacyStart(InputStream input, java.util.function.Consumer<String> output) {
+        Thread thread = new Thread(() -> {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(input))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    output.accept(line);
+                }
+            } catch (IOException ex) {
+                throw new RuntimeException(ex);
+            }
+        });
+        thread.setName("Stream Gobbler");
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+}
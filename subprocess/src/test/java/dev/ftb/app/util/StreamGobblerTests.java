@@ -0,0 +1,105 @@
+package dev.ftb.app.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class StreamGobblerTests {
+
+    @Test
+    public void testSplitLines() throws Exception {
+        List<String> lines = gobble("a\nbb\r\n\nö ü\nno newline", 64);
+        assertEquals(List.of("a", "bb", "", "ö ü", "no newline"), lines);
+    }
+
+    @Test
+    public void testLongLinesAreSplit() throws Exception {
+        List<String> lines = gobble("a".repeat(10) + "\nb", 4);
+        assertEquals(List.of("aaaa", "aaaa", "aa", "b"), lines);
+
+        // Never split a multibyte character.
+        lines = gobble("aaaö\n", 4);
+        assertEquals(List.of("aaa", "ö"), lines);
+
+        // Nor in other multibyte charsets.
+        lines = gobble("aaa中\n", 4, Charset.forName("GBK"));
+        assertEquals(List.of("aaa", "中"), lines);
+    }
+
+    @Test
+    public void testStop() throws Exception {
+        BlockingQueue<Integer> pipe = new LinkedBlockingQueue<>();
+        // Like a process pipe some other process is holding open, reads block until closed.
+        InputStream is = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                try {
+                    int b = pipe.take();
+                    if (b == -2) throw new IOException("Closed.");
+                    return b;
+                } catch (InterruptedException ex) {
+                    throw new IOException(ex);
+                }
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                // Return what's available without blocking for more, as a pipe does.
+                b[off] = (byte) read();
+                int i = 1;
+                Integer next;
+                while (i < len && (next = pipe.peek()) != null && next >= 0) {
+                    b[off + i++] = (byte) (int) pipe.poll();
+                }
+                return i;
+            }
+
+            @Override
+            public void close() {
+                pipe.add(-2);
+            }
+        };
+        List<String> lines = new CopyOnWriteArrayList<>();
+        StreamGobbler gobbler = new StreamGobbler()
+                .setInput(is)
+                .setCharset(StandardCharsets.UTF_8)
+                .setOutput(lines::add)
+                .start();
+        for (byte b : "hello\n".getBytes(StandardCharsets.UTF_8)) {
+            pipe.add(b & 0xFF);
+        }
+
+        gobbler.stop(200, TimeUnit.MILLISECONDS);
+        gobbler.onFinished().get(5, TimeUnit.SECONDS);
+        assertEquals(List.of("hello"), lines);
+    }
+
+    private static List<String> gobble(String str, int maxLineLength) throws Exception {
+        return gobble(str, maxLineLength, StandardCharsets.UTF_8);
+    }
+
+    private static List<String> gobble(String str, int maxLineLength, Charset charset) throws Exception {
+        InputStream is = new ByteArrayInputStream(str.getBytes(charset));
+        List<String> lines = new CopyOnWriteArrayList<>();
+        new StreamGobbler()
+                .setInput(is)
+                .setCharset(charset)
+                .setMaxLineLength(maxLineLength)
+                .setOutput(lines::add)
+                .start()
+                .onFinished()
+                .get(5, TimeUnit.SECONDS);
+        return lines;
+    }
+}